@@ -1,5 +1,7 @@
 package ar.com.shipcommand.gfx;
 
+import ar.com.shipcommand.main.WorldSnapshot;
+
 import java.awt.*;
 
 /**
@@ -9,8 +11,17 @@ public interface IRenderable {
     /**
      * Method called when needed to update the object's render state
      *
-     * @param dt Time elapsed from previous time step
+     * Rendering is done on its own thread, so objects must draw using the state published on the given snapshot
+     * instead of reading values updated by the physics thread.
+     *
+     * The alpha value indicates how far the render is between the last physics step and the next one,
+     * 0 means the render happens exactly on the last step and values close to 1 mean the next step is almost due.
+     * It can be used to interpolate the object's position so movement looks smooth between physics steps.
+     *
      * @param graphics Graphics object reference
+     * @param snapshot Latest published state of the world
+     * @param dt Time elapsed from previous render step
+     * @param alpha Fraction of a physics step elapsed since the snapshot was taken (0 to 1)
      */
-    void render(Graphics2D graphics, double dt);
+    void render(Graphics2D graphics, WorldSnapshot snapshot, double dt, double alpha);
 }
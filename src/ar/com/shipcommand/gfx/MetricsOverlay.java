@@ -0,0 +1,99 @@
+package ar.com.shipcommand.gfx;
+
+import ar.com.shipcommand.input.KeyHandler;
+import ar.com.shipcommand.main.WorldSnapshot;
+import ar.com.shipcommand.metrics.GameMetrics;
+import ar.com.shipcommand.metrics.PhaseMetrics;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+
+/**
+ * Draws the game loop metrics over the game screen, visibility is toggled with F3.
+ *
+ * The keyboard state is latched on the physics thread, so the toggle key is read there by pollInput and the
+ * visibility is published to the render thread.
+ */
+public class MetricsOverlay implements IRenderable {
+    private static int LINE_HEIGHT = 14;
+    private static Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    private GameMetrics metrics;
+    private volatile boolean visible = true;
+    private boolean togglePressed = false;
+
+    /**
+     * Creates a new metrics overlay
+     *
+     * @param metrics Metrics to draw
+     */
+    public MetricsOverlay(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns if the overlay is drawn
+     *
+     * @return True if visible
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Sets if the overlay is drawn
+     *
+     * @param visible True to draw the overlay
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * Toggles the visibility when F3 is pressed, must be called on the physics thread after the input is latched,
+     * like from a system of the game loop
+     */
+    public void pollInput() {
+        boolean pressed = KeyHandler.isDown(KeyEvent.VK_F3);
+
+        if (pressed && !togglePressed) {
+            visible = !visible;
+        }
+
+        togglePressed = pressed;
+    }
+
+    public void render(Graphics2D graphics, WorldSnapshot snapshot, double dt, double alpha) {
+        if (!visible) {
+            return;
+        }
+
+        graphics.setFont(FONT);
+        graphics.setColor(Color.YELLOW);
+
+        int y = LINE_HEIGHT;
+
+        graphics.drawString(String.format("FPS: %.0f | TPS: %.0f | Missed: %d",
+                metrics.getFramesPerSecond(), metrics.getTicksPerSecond(), metrics.getMissedPhysicsDeadlines()), 4, y);
+
+        y = drawPhase(graphics, metrics.getFrameTime(), y + LINE_HEIGHT);
+        y = drawPhase(graphics, metrics.getPhysics(), y + LINE_HEIGHT);
+        y = drawPhase(graphics, metrics.getRender(), y + LINE_HEIGHT);
+        drawPhase(graphics, metrics.getInput(), y + LINE_HEIGHT);
+    }
+
+    /**
+     * Draws the statistics of one phase
+     *
+     * @param graphics Graphics object reference
+     * @param phase Phase to draw
+     * @param y Vertical position of the line
+     * @return Vertical position of the line
+     */
+    private int drawPhase(Graphics2D graphics, PhaseMetrics phase, int y) {
+        graphics.drawString(String.format("%-8s p50 %6.2f | p99 %6.2f | max %6.2f ms",
+                phase.getName(), phase.getP50(), phase.getP99(), phase.getMax()), 4, y);
+
+        return y;
+    }
+}
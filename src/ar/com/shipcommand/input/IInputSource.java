@@ -0,0 +1,15 @@
+package ar.com.shipcommand.input;
+
+/**
+ * Source of the input state seen by the game objects on each physics step
+ */
+public interface IInputSource {
+    /**
+     * Sets the state of the KeyHandler and MouseHandler for the given physics step.
+     *
+     * Called from the physics thread before stepping the game objects
+     *
+     * @param tick Number of the physics step
+     */
+    void poll(long tick);
+}
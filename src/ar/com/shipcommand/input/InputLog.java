@@ -0,0 +1,111 @@
+package ar.com.shipcommand.input;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary format of the input recordings.
+ *
+ * A log starts with a header holding MAGIC, VERSION and the physics step duration. Then there is a record for
+ * each physics step in which the input changed: the number of steps since the previous record, a byte of flags
+ * telling which parts of the state changed and the new values of those parts. Numbers are written as variable
+ * length integers and the cursor position as the difference with the previous one, so most records take a few
+ * bytes. The log ends with a record with the END flag holding the number of steps recorded.
+ */
+class InputLog {
+    static int MAGIC = 0x5343494E;
+    static int VERSION = 1;
+
+    static int KEYS = 1;
+    static int BUTTONS = 2;
+    static int POSITION = 4;
+    static int WHEEL = 8;
+    static int END = 0x80;
+
+    /**
+     * Writes a non negative number using 7 bits per byte
+     *
+     * @param out Output stream
+     * @param value Value to write
+     */
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a number written with writeVarLong
+     *
+     * @param in Input stream
+     * @return Value read
+     */
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * Writes a signed number so small negative values take few bytes
+     *
+     * @param out Output stream
+     * @param value Value to write
+     */
+    static void writeSigned(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads a number written with writeSigned
+     *
+     * @param in Input stream
+     * @return Value read
+     */
+    static int readSigned(DataInputStream in) throws IOException {
+        int value = (int) readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes an array of codes
+     *
+     * @param out Output stream
+     * @param codes Codes to write
+     */
+    static void writeCodes(DataOutputStream out, int[] codes) throws IOException {
+        writeVarLong(out, codes.length);
+
+        for (int code : codes) {
+            writeVarLong(out, code);
+        }
+    }
+
+    /**
+     * Reads an array of codes written with writeCodes
+     *
+     * @param in Input stream
+     * @return Codes read
+     */
+    static int[] readCodes(DataInputStream in) throws IOException {
+        int[] codes = new int[(int) readVarLong(in)];
+
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = (int) readVarLong(in);
+        }
+
+        return codes;
+    }
+}
@@ -0,0 +1,108 @@
+package ar.com.shipcommand.input;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Input source that records the state produced by another source to a binary log, one record per physics step in
+ * which the input changed
+ */
+public class InputRecorder implements IInputSource, Closeable {
+    private IInputSource source;
+    private DataOutputStream out;
+
+    private long lastRecord = 0;
+    private long lastTick = -1;
+
+    private int[] keys = new int[0];
+    private int[] buttons = new int[0];
+    private int x = 0;
+    private int y = 0;
+
+    /**
+     * Creates a new recorder
+     *
+     * @param source Source of the input to record
+     * @param path Path of the log file
+     * @param frameTime Duration of each physics step in seconds
+     */
+    public InputRecorder(IInputSource source, String path, double frameTime) throws IOException {
+        this.source = source;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+
+        out.writeInt(InputLog.MAGIC);
+        out.writeInt(InputLog.VERSION);
+        out.writeDouble(frameTime);
+    }
+
+    public synchronized void poll(long tick) {
+        source.poll(tick);
+
+        if (out == null) {
+            return;
+        }
+
+        int[] currentKeys = KeyHandler.getPressed();
+        int[] currentButtons = MouseHandler.getPressed();
+        int currentX = MouseHandler.getX();
+        int currentY = MouseHandler.getY();
+        int wheel = MouseHandler.getWheel();
+
+        // Find which parts of the state changed since the last step
+        int flags = 0;
+
+        if (!Arrays.equals(keys, currentKeys)) flags |= InputLog.KEYS;
+        if (!Arrays.equals(buttons, currentButtons)) flags |= InputLog.BUTTONS;
+        if (x != currentX || y != currentY) flags |= InputLog.POSITION;
+        if (wheel != 0) flags |= InputLog.WHEEL;
+
+        lastTick = tick;
+
+        if (flags == 0) {
+            return;
+        }
+
+        try {
+            InputLog.writeVarLong(out, tick - lastRecord);
+            out.writeByte(flags);
+
+            if ((flags & InputLog.KEYS) != 0) InputLog.writeCodes(out, currentKeys);
+            if ((flags & InputLog.BUTTONS) != 0) InputLog.writeCodes(out, currentButtons);
+
+            if ((flags & InputLog.POSITION) != 0) {
+                InputLog.writeSigned(out, currentX - x);
+                InputLog.writeSigned(out, currentY - y);
+            }
+
+            if ((flags & InputLog.WHEEL) != 0) InputLog.writeSigned(out, wheel);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        keys = currentKeys;
+        buttons = currentButtons;
+        x = currentX;
+        y = currentY;
+        lastRecord = tick;
+    }
+
+    /**
+     * Writes the end of the log and closes the file
+     */
+    public synchronized void close() throws IOException {
+        if (out == null) {
+            return;
+        }
+
+        InputLog.writeVarLong(out, Math.max(0, lastTick + 1 - lastRecord));
+        out.writeByte(InputLog.END);
+
+        out.close();
+        out = null;
+    }
+}
@@ -0,0 +1,132 @@
+package ar.com.shipcommand.input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Input source that replays a log written by InputRecorder.
+ *
+ * The whole log is loaded when the replayer is created, so reading it doesn't affect the duration of the steps.
+ */
+public class InputReplayer implements IInputSource {
+    /**
+     * Input state changes on one physics step
+     */
+    private static class Record {
+        long tick;
+        int flags;
+        int[] keys;
+        int[] buttons;
+        int x;
+        int y;
+        int wheel;
+    }
+
+    private ArrayList<Record> records;
+    private double frameTime;
+    private long length;
+
+    private int next = 0;
+
+    private int[] buttons = new int[0];
+    private int x = 0;
+    private int y = 0;
+
+    /**
+     * Loads the specified input log
+     *
+     * @param path Path of the log file
+     */
+    public InputReplayer(String path) throws IOException {
+        records = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != InputLog.MAGIC || in.readInt() != InputLog.VERSION) {
+                throw new IOException("Not a supported input log: " + path);
+            }
+
+            frameTime = in.readDouble();
+
+            long tick = 0;
+            int lastX = 0;
+            int lastY = 0;
+
+            while (true) {
+                tick += InputLog.readVarLong(in);
+                int flags = in.readUnsignedByte();
+
+                if ((flags & InputLog.END) != 0) {
+                    length = tick;
+                    break;
+                }
+
+                Record record = new Record();
+                record.tick = tick;
+                record.flags = flags;
+
+                if ((flags & InputLog.KEYS) != 0) record.keys = InputLog.readCodes(in);
+                if ((flags & InputLog.BUTTONS) != 0) record.buttons = InputLog.readCodes(in);
+
+                if ((flags & InputLog.POSITION) != 0) {
+                    lastX += InputLog.readSigned(in);
+                    lastY += InputLog.readSigned(in);
+                }
+
+                record.x = lastX;
+                record.y = lastY;
+
+                if ((flags & InputLog.WHEEL) != 0) record.wheel = InputLog.readSigned(in);
+
+                records.add(record);
+            }
+        }
+    }
+
+    /**
+     * Returns the duration of the physics steps when the log was recorded
+     *
+     * @return Step duration in seconds
+     */
+    public double getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * Returns the number of physics steps recorded
+     *
+     * @return Number of steps
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns if all the recorded steps were replayed
+     *
+     * @param tick Current physics step
+     * @return True if the replay is complete
+     */
+    public boolean isFinished(long tick) {
+        return tick >= length;
+    }
+
+    public void poll(long tick) {
+        int wheel = 0;
+
+        while (next < records.size() && records.get(next).tick <= tick) {
+            Record record = records.get(next++);
+
+            if ((record.flags & InputLog.KEYS) != 0) KeyHandler.setPressed(record.keys);
+            if ((record.flags & InputLog.BUTTONS) != 0) buttons = record.buttons;
+            if ((record.flags & InputLog.WHEEL) != 0 && record.tick == tick) wheel = record.wheel;
+
+            x = record.x;
+            y = record.y;
+        }
+
+        MouseHandler.setState(buttons, x, y, wheel);
+    }
+}
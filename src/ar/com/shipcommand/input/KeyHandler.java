@@ -2,12 +2,22 @@ package ar.com.shipcommand.input;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.Arrays;
 import java.util.HashSet;
 
 /**
  * Handles keyboard input over a window
+ *
+ * Key events update the live state of the keyboard. At the start of each physics step the live state is latched
+ * so all game objects see the same keys pressed during the whole step, or it's replaced by a recorded state when
+ * replaying a session.
  */
 public class KeyHandler extends KeyAdapter {
+    /**
+     * Set of keys pressed as received from the window events
+     */
+    private static HashSet<Integer> live = new HashSet<>();
+
     /**
      * Set of currently pressed keys
      */
@@ -19,7 +29,9 @@ public class KeyHandler extends KeyAdapter {
      * @param e Key event
      */
     public void keyPressed(KeyEvent e) {
-        pressed.add(e.getKeyCode());
+        synchronized (live) {
+            live.add(e.getKeyCode());
+        }
     }
 
     /**
@@ -28,7 +40,9 @@ public class KeyHandler extends KeyAdapter {
      * @param e Key event
      */
     public void keyReleased(KeyEvent e) {
-        pressed.remove(e.getKeyCode());
+        synchronized (live) {
+            live.remove(e.getKeyCode());
+        }
     }
 
     /**
@@ -40,4 +54,45 @@ public class KeyHandler extends KeyAdapter {
     public static boolean isDown(int keyCode) {
         return pressed.contains(keyCode);
     }
+
+    /**
+     * Copies the live keyboard state to the state seen by the game
+     */
+    public static void latch() {
+        synchronized (live) {
+            pressed.clear();
+            pressed.addAll(live);
+        }
+    }
+
+    /**
+     * Returns the codes of the currently pressed keys
+     *
+     * @return Sorted array of key codes
+     */
+    public static int[] getPressed() {
+        int[] keys = new int[pressed.size()];
+        int i = 0;
+
+        for (int key : pressed) {
+            keys[i++] = key;
+        }
+
+        Arrays.sort(keys);
+
+        return keys;
+    }
+
+    /**
+     * Replaces the state seen by the game with the given pressed keys
+     *
+     * @param keys Codes of the pressed keys
+     */
+    public static void setPressed(int[] keys) {
+        pressed.clear();
+
+        for (int key : keys) {
+            pressed.add(key);
+        }
+    }
 }
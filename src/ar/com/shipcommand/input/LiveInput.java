@@ -0,0 +1,11 @@
+package ar.com.shipcommand.input;
+
+/**
+ * Input source that uses the keyboard and mouse events received by the game window
+ */
+public class LiveInput implements IInputSource {
+    public void poll(long tick) {
+        KeyHandler.latch();
+        MouseHandler.latch();
+    }
+}
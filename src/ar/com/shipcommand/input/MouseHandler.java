@@ -3,12 +3,24 @@ package ar.com.shipcommand.input;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
 import java.util.HashSet;
 
 /**
  * Handles mouse input
+ *
+ * Mouse events update the live state of the mouse. At the start of each physics step the live state is latched
+ * so all game objects see the same state during the whole step, or it's replaced by a recorded state when
+ * replaying a session.
  */
 public class MouseHandler extends MouseAdapter {
+    private static final Object lock = new Object();
+
+    private static HashSet<Integer> livePressed = new HashSet<>();
+    private static int liveX = 0;
+    private static int liveY = 0;
+    private static int liveWheel = 0;
+
     private static HashSet<Integer> pressed = new HashSet<>();
     private static int x = 0;
     private static int y = 0;
@@ -20,7 +32,9 @@ public class MouseHandler extends MouseAdapter {
      * @param e Mouse event data
      */
     public void mousePressed(MouseEvent e) {
-        pressed.add(e.getButton());
+        synchronized (lock) {
+            livePressed.add(e.getButton());
+        }
     }
 
     /**
@@ -29,7 +43,9 @@ public class MouseHandler extends MouseAdapter {
      * @param e Mouse event data
      */
     public void mouseReleased(MouseEvent e) {
-        pressed.remove(e.getButton());
+        synchronized (lock) {
+            livePressed.remove(e.getButton());
+        }
     }
 
     /**
@@ -38,8 +54,10 @@ public class MouseHandler extends MouseAdapter {
      * @param e Mouse event data
      */
     public void mouseMoved(MouseEvent e) {
-        x = e.getX();
-        y = e.getY();
+        synchronized (lock) {
+            liveX = e.getX();
+            liveY = e.getY();
+        }
     }
 
     /**
@@ -48,8 +66,10 @@ public class MouseHandler extends MouseAdapter {
      * @param e Mouse event data
      */
     public void mouseDragged(MouseEvent e) {
-        x = e.getX();
-        y = e.getY();
+        synchronized (lock) {
+            liveX = e.getX();
+            liveY = e.getY();
+        }
     }
 
     /**
@@ -58,7 +78,9 @@ public class MouseHandler extends MouseAdapter {
      * @param e Mouse event data
      */
     public void mouseWheelMoved(MouseWheelEvent e) {
-        wheel += e.getWheelRotation();
+        synchronized (lock) {
+            liveWheel += e.getWheelRotation();
+        }
     }
 
     /**
@@ -117,6 +139,60 @@ public class MouseHandler extends MouseAdapter {
         return wheel != 0;
     }
 
+    /**
+     * Copies the live mouse state to the state seen by the game, consuming the wheel movement
+     */
+    public static void latch() {
+        synchronized (lock) {
+            pressed.clear();
+            pressed.addAll(livePressed);
+
+            x = liveX;
+            y = liveY;
+            wheel = liveWheel;
+
+            liveWheel = 0;
+        }
+    }
+
+    /**
+     * Returns the currently pressed buttons
+     *
+     * @return Sorted array of button numbers
+     */
+    public static int[] getPressed() {
+        int[] buttons = new int[pressed.size()];
+        int i = 0;
+
+        for (int button : pressed) {
+            buttons[i++] = button;
+        }
+
+        Arrays.sort(buttons);
+
+        return buttons;
+    }
+
+    /**
+     * Replaces the state seen by the game with the given values
+     *
+     * @param buttons Pressed buttons
+     * @param x X position of the cursor
+     * @param y Y position of the cursor
+     * @param wheel Wheel movement on this time step
+     */
+    public static void setState(int[] buttons, int x, int y, int wheel) {
+        pressed.clear();
+
+        for (int button : buttons) {
+            pressed.add(button);
+        }
+
+        MouseHandler.x = x;
+        MouseHandler.y = y;
+        MouseHandler.wheel = wheel;
+    }
+
     /**
      * Updates the mouse state for the next time step
      */
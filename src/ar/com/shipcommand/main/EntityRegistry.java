@@ -0,0 +1,226 @@
+package ar.com.shipcommand.main;
+
+import java.util.Arrays;
+
+/**
+ * Dense array of entities with deferred additions and removals.
+ *
+ * Entities are stored contiguously in indexes 0 to size - 1 so they can be iterated with a plain indexed loop.
+ * Additions and removals can be requested from any thread at any time, even while the registry is being iterated,
+ * they are queued and only applied when the owner of the registry calls flush. Indexes are stable between flushes,
+ * when an entity is removed the last entity takes its place. Once the arrays have grown to the number of entities
+ * and pending operations, adding and removing entities doesn't allocate.
+ *
+ * @param <T> Type of the entities
+ */
+public class EntityRegistry<T> {
+    /**
+     * Initial capacity of the entities array
+     */
+    private static int INITIAL_CAPACITY = 64;
+
+    private Object[] entities;
+    private int size = 0;
+
+    private IdentityIndex indexes;
+
+    /**
+     * Pending additions and removals in the order they were requested, guarded by the registry's lock
+     */
+    private Object[] pending;
+    private boolean[] pendingAdd;
+    private int pendingCount = 0;
+
+    /**
+     * Operations being applied by flush, swapped with the pending ones
+     */
+    private Object[] applying;
+    private boolean[] applyingAdd;
+
+    /**
+     * Creates a new empty registry
+     */
+    public EntityRegistry() {
+        entities = new Object[INITIAL_CAPACITY];
+        indexes = new IdentityIndex(INITIAL_CAPACITY);
+
+        pending = new Object[INITIAL_CAPACITY];
+        pendingAdd = new boolean[INITIAL_CAPACITY];
+        applying = new Object[INITIAL_CAPACITY];
+        applyingAdd = new boolean[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Queues the addition of an entity, it will be available after the next flush
+     *
+     * @param entity Entity to add
+     */
+    public void add(T entity) {
+        queue(entity, true);
+    }
+
+    /**
+     * Queues the removal of an entity, it will be removed on the next flush
+     *
+     * @param entity Entity to remove
+     */
+    public void remove(T entity) {
+        queue(entity, false);
+    }
+
+    /**
+     * Adds an operation to the pending ones
+     *
+     * @param entity Entity to add or remove
+     * @param add True to add the entity, false to remove it
+     */
+    private synchronized void queue(Object entity, boolean add) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+            pendingAdd = Arrays.copyOf(pendingAdd, pendingCount * 2);
+        }
+
+        pending[pendingCount] = entity;
+        pendingAdd[pendingCount] = add;
+        pendingCount++;
+    }
+
+    /**
+     * Returns if there are additions or removals waiting for the next flush
+     *
+     * @return True if there are pending operations
+     */
+    public synchronized boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    /**
+     * Applies all the pending additions and removals in the order they were requested
+     *
+     * @return True if the registry changed
+     */
+    public boolean flush() {
+        int count;
+
+        // Take the pending operations, new ones are queued on the other arrays while these are applied
+        synchronized (this) {
+            count = pendingCount;
+
+            if (count == 0) {
+                return false;
+            }
+
+            Object[] entities = pending;
+            boolean[] add = pendingAdd;
+
+            pending = applying;
+            pendingAdd = applyingAdd;
+            pendingCount = 0;
+
+            applying = entities;
+            applyingAdd = add;
+        }
+
+        boolean changed = false;
+
+        for (int i = 0; i < count; i++) {
+            if (applyingAdd[i]) {
+                changed |= insert(applying[i]);
+            } else {
+                changed |= delete(applying[i]);
+            }
+
+            applying[i] = null;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Adds the entity at the end of the array if not already present
+     *
+     * @param entity Entity to add
+     * @return True if the entity was added
+     */
+    private boolean insert(Object entity) {
+        if (indexes.get(entity) != IdentityIndex.NONE) {
+            return false;
+        }
+
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+
+        indexes.put(entity, size);
+        entities[size++] = entity;
+
+        return true;
+    }
+
+    /**
+     * Removes the entity moving the last entity to its place
+     *
+     * @param entity Entity to remove
+     * @return True if the entity was removed
+     */
+    private boolean delete(Object entity) {
+        int index = indexes.remove(entity);
+
+        if (index == IdentityIndex.NONE) {
+            return false;
+        }
+
+        int last = --size;
+
+        if (index != last) {
+            Object moved = entities[last];
+
+            entities[index] = moved;
+            indexes.put(moved, index);
+        }
+
+        entities[last] = null;
+
+        return true;
+    }
+
+    /**
+     * Returns the number of entities in the registry
+     *
+     * @return Number of entities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the entity at the specified index
+     *
+     * @param index Index of the entity, from 0 to size - 1
+     * @return Entity at the index
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) entities[index];
+    }
+
+    /**
+     * Returns the index of the specified entity
+     *
+     * @param entity Entity to look for
+     * @return Index of the entity or -1 if not in the registry
+     */
+    public int indexOf(T entity) {
+        return indexes.get(entity);
+    }
+
+    /**
+     * Returns if the specified entity is in the registry, pending additions are not considered
+     *
+     * @param entity Entity to look for
+     * @return True if the entity is in the registry
+     */
+    public boolean contains(T entity) {
+        return indexes.get(entity) != IdentityIndex.NONE;
+    }
+}
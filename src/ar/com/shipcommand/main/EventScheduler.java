@@ -0,0 +1,122 @@
+package ar.com.shipcommand.main;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of game events ordered by their simulated time.
+ *
+ * Events scheduled for the same time fire in the order they were scheduled. Events can be scheduled and cancelled
+ * from any thread, they are fired from the physics thread by the game loop.
+ */
+public class EventScheduler {
+    private PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private long sequence = 0;
+
+    /**
+     * Schedules an event
+     *
+     * @param time Simulated time in seconds
+     * @param event Event to fire
+     */
+    public synchronized void schedule(double time, IGameEvent event) {
+        queue.add(new Entry(time, sequence++, event));
+    }
+
+    /**
+     * Cancels all the pending firings of an event
+     *
+     * @param event Event to cancel
+     * @return True if the event was pending
+     */
+    public synchronized boolean cancel(IGameEvent event) {
+        boolean found = false;
+        Iterator<Entry> iterator = queue.iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().event == event) {
+                iterator.remove();
+                found = true;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the number of pending events
+     *
+     * @return Number of events
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the time of the next event
+     *
+     * @return Simulated time in seconds, infinite if there are no events
+     */
+    public synchronized double getNextTime() {
+        Entry next = queue.peek();
+
+        return next != null ? next.time : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Fires, in order, all the events up to the given time, including the ones scheduled by the events fired
+     *
+     * @param time Simulated time in seconds
+     * @return Number of events fired
+     */
+    public int fire(double time) {
+        int fired = 0;
+
+        while (true) {
+            Entry next;
+
+            synchronized (this) {
+                next = queue.peek();
+
+                if (next == null || next.time > time) {
+                    return fired;
+                }
+
+                queue.poll();
+            }
+
+            // Fire outside the lock so the event can schedule others
+            next.event.fire(next.time);
+            fired++;
+        }
+    }
+
+    /**
+     * Event waiting on the queue
+     */
+    private static class Entry implements Comparable<Entry> {
+        double time;
+        long sequence;
+        IGameEvent event;
+
+        /**
+         * Creates a new entry
+         *
+         * @param time Simulated time in seconds
+         * @param sequence Order in which the event was scheduled
+         * @param event Event to fire
+         */
+        Entry(double time, long sequence, IGameEvent event) {
+            this.time = time;
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(time, other.time);
+
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
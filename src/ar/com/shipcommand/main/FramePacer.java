@@ -0,0 +1,107 @@
+package ar.com.shipcommand.main;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for the time in which the next frame is due using the configured pacing mode
+ */
+public class FramePacer {
+    /**
+     * Minimum time left to the deadline in which the hybrid mode stops sleeping
+     */
+    private static long MIN_SPIN_TIME = 200000;
+    /**
+     * Maximum time left to the deadline in which the hybrid mode stops sleeping
+     */
+    private static long MAX_SPIN_TIME = 4000000;
+
+    private volatile PacingMode mode;
+
+    /**
+     * Average time by which a sleep exceeds the requested time in nano seconds
+     */
+    private double oversleep = 1000000;
+
+    /**
+     * Creates a new frame pacer
+     *
+     * @param mode Pacing mode
+     */
+    public FramePacer(PacingMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Returns the pacing mode
+     *
+     * @return Pacing mode
+     */
+    public PacingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the pacing mode
+     *
+     * @param mode Pacing mode
+     */
+    public void setMode(PacingMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Waits until the specified time
+     *
+     * @param deadline Time to wait for in nano seconds as returned by System.nanoTime()
+     */
+    public void waitUntil(long deadline) {
+        switch (mode) {
+            case Spin:
+                spin(deadline);
+                break;
+            case Sleep:
+                sleep(deadline, 0);
+                break;
+            case Hybrid:
+                // Stop sleeping twice the usual oversleep before the deadline and spin the rest
+                long spinTime = Math.max(MIN_SPIN_TIME, Math.min(MAX_SPIN_TIME, (long) (oversleep * 2)));
+
+                sleep(deadline, spinTime);
+                spin(deadline);
+                break;
+        }
+    }
+
+    /**
+     * Sleeps until the given time is near the deadline
+     *
+     * @param deadline Time to wait for in nano seconds
+     * @param margin Time before the deadline in which the sleep must end
+     */
+    private void sleep(long deadline, long margin) {
+        long now = System.nanoTime();
+
+        while (deadline - now > margin) {
+            long requested = deadline - now - margin;
+
+            LockSupport.parkNanos(requested);
+
+            long woke = System.nanoTime();
+
+            // Keep a moving average of how late the thread wakes up
+            oversleep += ((woke - now - requested) - oversleep) * 0.1;
+            now = woke;
+        }
+    }
+
+    /**
+     * Busy waits until the deadline
+     *
+     * @param deadline Time to wait for in nano seconds
+     */
+    private void spin(long deadline) {
+        while (System.nanoTime() - deadline < 0) {
+            Thread.yield();
+        }
+    }
+}
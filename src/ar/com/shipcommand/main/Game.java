@@ -1,45 +1,213 @@
 package ar.com.shipcommand.main;
 
+import ar.com.shipcommand.gfx.MetricsOverlay;
+import ar.com.shipcommand.input.InputRecorder;
+import ar.com.shipcommand.input.InputReplayer;
+
+import java.io.IOException;
+
 /**
  * Main game class
  */
-public class Game implements Runnable {
+public class Game {
     private static MainWindow mainWindow;
-    private static Thread thread;
+    private static Thread physicsThread;
+    private static Thread renderThread;
 
-    private static boolean running = false;
-    private static boolean physicsRunning = false;
+    private static volatile boolean running = false;
+    private static volatile boolean physicsRunning = false;
 
     private static GameLoop gameLoop;
+    private static HeadlessRunner headlessRunner;
 
     /**
      * Called when application is loop.
      *
      * Initializes the game and starts it.
      *
+     * Supported arguments:
+     *   --headless             Run the simulation without a window
+     *   --speed [factor | max] Time compression when running headless, defaults to max
+     *   --duration [seconds]   Simulated time to run when headless, defaults to run until stopped
+     *   --threads [count]      Number of threads used to step concurrent game objects
+     *   --pacing [mode]        Strategy used to wait for the next frame: spin, sleep or hybrid (default)
+     *   --fps [rate | max]     Render rate cap, defaults to the display refresh rate
+     *   --record [file]        Record the input of each physics step to the given file
+     *   --replay [file]        Replay the input recorded on the given file, headless runs stop when it ends
+     *
      * @param args command line arguments
      */
     public static void main(String args[]) {
         Game.init(args);
-        Game.start();
+
+        if (isHeadless()) {
+            if (!hasArg(args, "--duration") && gameLoop.getInputSource() instanceof InputReplayer) {
+                // When replaying a session run exactly the recorded steps
+                Game.runHeadlessSteps(((InputReplayer) gameLoop.getInputSource()).getLength());
+            } else {
+                Game.runHeadless(argValue(args, "--duration", Double.POSITIVE_INFINITY));
+            }
+        } else {
+            Game.start();
+        }
     }
 
     /**
      * Initialize main window and game loop
      */
     protected static void init(String args[]) {
-        mainWindow = new MainWindow(1024, 768, "Ship Command");
-
         gameLoop = new GameLoop();
+        gameLoop.setParallelism((int) argValue(args, "--threads", 1));
+
+        if (argString(args, "--fps", "").equals("max")) {
+            gameLoop.setRenderRate(GameLoop.RENDER_RATE_UNCAPPED);
+        } else {
+            gameLoop.setRenderRate(argValue(args, "--fps", GameLoop.RENDER_RATE_DISPLAY));
+        }
+
+        PacingMode pacing = pacingMode(argString(args, "--pacing", "hybrid"));
+        gameLoop.setPacingMode(pacing);
+
+        initInput(argString(args, "--record", null), argString(args, "--replay", null));
+
+        if (hasArg(args, "--headless")) {
+            System.setProperty("java.awt.headless", "true");
+
+            double speed = argValue(args, "--speed", HeadlessRunner.UNBOUNDED);
+
+            if (speed <= 0) {
+                throw new IllegalArgumentException("Time compression must be greater than zero");
+            }
+
+            headlessRunner = new HeadlessRunner(gameLoop, speed);
+            headlessRunner.setPacingMode(pacing);
+        } else {
+            mainWindow = new MainWindow(1024, 768, "Ship Command");
+        }
+
         initialize();
     }
 
+    /**
+     * Initialize the input source of the game loop
+     *
+     * @param recordPath File where the input must be recorded, null to not record
+     * @param replayPath File with the input to replay, null to use the live input
+     */
+    private static void initInput(String recordPath, String replayPath) {
+        try {
+            if (replayPath != null) {
+                InputReplayer replayer = new InputReplayer(replayPath);
+
+                if (replayer.getFrameTime() != GameLoop.getFrameTime()) {
+                    throw new IllegalArgumentException("The input log was recorded with a different physics step");
+                }
+
+                gameLoop.setInputSource(replayer);
+            }
+
+            if (recordPath != null) {
+                InputRecorder recorder = new InputRecorder(gameLoop.getInputSource(), recordPath, GameLoop.getFrameTime());
+                gameLoop.setInputSource(recorder);
+
+                // Make sure the end of the log is written when the game exits
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        recorder.close();
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
+                }));
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Unable to open the input log", ex);
+        }
+    }
+
+    /**
+     * Returns if the specified argument is present
+     *
+     * @param args Command line arguments
+     * @param name Argument name
+     * @return True if the argument is present
+     */
+    private static boolean hasArg(String args[], String name) {
+        for (String arg : args) {
+            if (arg.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the value following the specified argument
+     *
+     * @param args Command line arguments
+     * @param name Argument name
+     * @param defaultValue Value returned if the argument is not present
+     * @return Argument value
+     */
+    private static String argString(String args[], String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Returns the pacing mode with the given name
+     *
+     * @param name Name of the pacing mode, case insensitive
+     * @return Pacing mode
+     */
+    private static PacingMode pacingMode(String name) {
+        for (PacingMode mode : PacingMode.values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown pacing mode: " + name);
+    }
+
+    /**
+     * Returns the numeric value following the specified argument
+     *
+     * @param args Command line arguments
+     * @param name Argument name
+     * @param defaultValue Value returned if the argument is not present or its value is "max"
+     * @return Argument value
+     */
+    private static double argValue(String args[], String name, double defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name) && !args[i + 1].equals("max")) {
+                return Double.parseDouble(args[i + 1]);
+            }
+        }
+
+        return defaultValue;
+    }
+
     /**
      * Initialize the game
      */
     private static void initialize() {
+        gameLoop.getMetrics().register();
+
         Test test = new Test();
         gameLoop.add(test);
+
+        if (!isHeadless()) {
+            MetricsOverlay overlay = new MetricsOverlay(gameLoop.getMetrics());
+
+            gameLoop.add(overlay);
+            gameLoop.addSystem(dt -> overlay.pollInput());
+        }
         runPhysics();
     }
 
@@ -77,10 +245,19 @@ public class Game implements Runnable {
         physicsRunning = false;
     }
 
+    /**
+     * Return if the game is running without a window
+     *
+     * @return True if the game is headless
+     */
+    public static boolean isHeadless() {
+        return headlessRunner != null;
+    }
+
     /**
      * Returns the game's main window object
      *
-     * @return Main window of the game
+     * @return Main window of the game, null when running headless
      */
     public static MainWindow getMainWindow() {
         return mainWindow;
@@ -97,28 +274,65 @@ public class Game implements Runnable {
     }
 
     /**
-     * Method executed by the main game thread
+     * Starts the physics and render threads
      */
-    public void run() {
-        gameLoop.loop();
+    public static synchronized void start() {
+        running = true;
+
+        gameLoop.setRendered(true);
+
+        physicsThread = new Thread(gameLoop::physicsLoop, "Physics");
+        renderThread = new Thread(gameLoop::renderLoop, "Render");
+
+        physicsThread.start();
+        renderThread.start();
     }
 
     /**
-     * Starts the main game thread
+     * Runs the simulation headless on the calling thread
+     *
+     * @param duration Simulated time to run in seconds, infinite to run until stopped
      */
-    public static synchronized void start() {
-        thread = new Thread(new Game());
-        thread.start();
+    public static void runHeadless(double duration) {
         running = true;
+        headlessRunner.run(duration);
+        running = false;
     }
 
     /**
-     * Stops the main game thread
+     * Runs the simulation headless on the calling thread for the given number of physics steps
+     *
+     * @param steps Number of physics steps to run
+     */
+    public static void runHeadlessSteps(long steps) {
+        running = true;
+        headlessRunner.runSteps(steps);
+        running = false;
+    }
+
+    /**
+     * Returns the headless runner
+     *
+     * @return Headless runner, null when running with a window
+     */
+    public static HeadlessRunner getHeadlessRunner() {
+        return headlessRunner;
+    }
+
+    /**
+     * Stops the physics and render threads
      */
     public static synchronized void stop() {
+        if (isHeadless()) {
+            headlessRunner.stop();
+            return;
+        }
+
         try {
-            thread.join();
             running = false;
+
+            physicsThread.join();
+            renderThread.join();
         } catch (Exception ex) {
             ex.printStackTrace();
         }
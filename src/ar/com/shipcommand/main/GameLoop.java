@@ -1,14 +1,31 @@
 package ar.com.shipcommand.main;
 
 import ar.com.shipcommand.gfx.IRenderable;
-import ar.com.shipcommand.input.MouseHandler;
+import ar.com.shipcommand.input.IInputSource;
+import ar.com.shipcommand.input.LiveInput;
+import ar.com.shipcommand.metrics.GameMetrics;
 
 import java.awt.*;
 import java.awt.image.BufferStrategy;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
  * Main game loop implementation
+ *
+ * The loop runs on two threads. The physics thread steps all game objects and publishes a snapshot of their state
+ * after each step, and the render thread draws the latest published snapshot. Objects can be added and removed from
+ * any thread, even from inside a time step, the changes are applied by each thread between its frames.
+ *
+ * On each physics step the regular game objects are stepped first, one at a time, followed by the concurrent game
+ * objects, which can be spread over a pool of worker threads by setting the parallelism of the loop. Objects that
+ * implement IScheduledGameObject are only stepped when their update tier is due. Systems, game objects that work
+ * over the results of the others, are stepped last on every physics step in the order they were added.
+ *
+ * Removed objects implementing IPoolable are recycled at the start of the step in which their removal is applied,
+ * once they are no longer in any physics registry.
+ *
+ * Game events scheduled on the loop's event scheduler are fired at the start of the first step at or after their
+ * time, after the input is polled and before the objects are stepped.
  */
 public class GameLoop {
     /**
@@ -23,58 +40,327 @@ public class GameLoop {
      * Time for each physics step
      */
     private static double FRAME_TIME = 1.0 / PHYSICS_STEP_SIZE;
+    /**
+     * Maximum number of physics steps that can be run to catch up on a single loop
+     */
+    private static int MAX_CATCH_UP_STEPS = 5;
+    /**
+     * Number of concurrent objects stepped by each parallel task
+     */
+    private static int PARALLEL_CHUNK_SIZE = 256;
+    /**
+     * Fraction of a physics step by which an event can be late and still fire on a step, so rounding errors on the
+     * time of the steps don't move events to the next one
+     */
+    private static double EVENT_TOLERANCE = 1e-6;
+    /**
+     * Render rate value used to render as fast as possible
+     */
+    public static double RENDER_RATE_UNCAPPED = 0;
+    /**
+     * Render rate value used to match the refresh rate of the display
+     */
+    public static double RENDER_RATE_DISPLAY = -1;
+    /**
+     * Render rate used when the refresh rate of the display is unknown
+     */
+    private static double DEFAULT_RENDER_RATE = 60;
+
+    private EntityRegistry<IRenderable> renderables;
+    private EntityRegistry<IGameObject> gameObjects;
+    private EntityRegistry<IConcurrentGameObject> concurrentObjects;
+    private EntityRegistry<ISnapshotable<?>> snapshotables;
+    private EntityRegistry<IGameObject> systems;
 
-    private HashSet<IRenderable> renderables;
-    private HashSet<IGameObject> gameObjects;
+    private ParallelStepper stepper;
 
+    /**
+     * Removed poolable objects waiting to be recycled, guarded by recycleLock
+     */
+    private Object recycleLock = new Object();
+    private IPoolable[] recycling = new IPoolable[64];
+    private IPoolable[] recycled = new IPoolable[64];
+    private int recyclingCount = 0;
 
-    private int fps = 0;
-    private int tps = 0;
+    private FramePacer physicsPacer;
+    private FramePacer renderPacer;
+    private volatile double renderRate = RENDER_RATE_DISPLAY;
+
+    /**
+     * True when the renderables are applied by a render thread, otherwise the physics step applies them
+     */
+    private volatile boolean rendered = false;
+
+    private SnapshotBuffer snapshots;
+    private long tick = 0;
+
+    private GameMetrics metrics;
+
+    private IInputSource input;
+
+    private EventScheduler events;
 
     /**
      * Creates a new game loop
      */
     public GameLoop() {
-        renderables = new HashSet<>();
-        gameObjects = new HashSet<>();
+        renderables = new EntityRegistry<>();
+        gameObjects = new EntityRegistry<>();
+        concurrentObjects = new EntityRegistry<>();
+        snapshotables = new EntityRegistry<>();
+        systems = new EntityRegistry<>();
+
+        snapshots = new SnapshotBuffer();
+
+        physicsPacer = new FramePacer(PacingMode.Hybrid);
+        renderPacer = new FramePacer(PacingMode.Hybrid);
+
+        metrics = new GameMetrics();
+
+        input = new LiveInput();
+
+        events = new EventScheduler();
+    }
+
+    /**
+     * Returns the scheduler of the game events
+     *
+     * @return Event scheduler
+     */
+    public EventScheduler getEvents() {
+        return events;
     }
 
     /**
-     * Adds the specified object to the game loop
+     * Sets the source of the input seen by the game objects
      *
-     * @param object Can be a IRenderable and / or IGameObject.
+     * @param input Input source, it's polled at the start of each physics step
+     */
+    public void setInputSource(IInputSource input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns the source of the input seen by the game objects
+     *
+     * @return Input source
+     */
+    public IInputSource getInputSource() {
+        return input;
+    }
+
+    /**
+     * Returns the runtime metrics of the loop
+     *
+     * @return Game loop metrics
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds the specified object to the game loop.
+     *
+     * The object is stepped from the next physics step and rendered from the next render frame
+     *
+     * @param object Can be a IRenderable, IGameObject and / or ISnapshotable.
      */
     public void add(Object object) {
         if (object instanceof IRenderable) {
             renderables.add((IRenderable) object);
         }
 
-        if (object instanceof IGameObject) {
+        if (object instanceof IConcurrentGameObject) {
+            concurrentObjects.add((IConcurrentGameObject) object);
+        } else if (object instanceof IGameObject) {
             gameObjects.add((IGameObject) object);
         }
+
+        if (object instanceof ISnapshotable) {
+            snapshotables.add((ISnapshotable<?>) object);
+        }
     }
 
     /**
-     * Removes the specified object to the game loop
+     * Removes the specified object to the game loop.
+     *
+     * The object is still stepped and rendered until the current physics step or render frame is complete. Poolable
+     * objects are recycled after that and must not be added again until then.
      *
-     * @param object Can be a IRenderable and / or IGameObject.
+     * @param object Can be a IRenderable, IGameObject and / or ISnapshotable.
      */
     public void remove(Object object) {
-        if (object instanceof IGameObject) {
-            gameObjects.remove(object);
+        if (object instanceof ISnapshotable) {
+            snapshotables.remove((ISnapshotable<?>) object);
+        }
+
+        if (object instanceof IConcurrentGameObject) {
+            concurrentObjects.remove((IConcurrentGameObject) object);
+        } else if (object instanceof IGameObject) {
+            gameObjects.remove((IGameObject) object);
         }
 
         if (object instanceof IRenderable) {
-            renderables.remove(object);
+            renderables.remove((IRenderable) object);
+        }
+
+        if (object instanceof IPoolable) {
+            synchronized (recycleLock) {
+                if (recyclingCount == recycling.length) {
+                    recycling = Arrays.copyOf(recycling, recyclingCount * 2);
+                }
+
+                recycling[recyclingCount++] = (IPoolable) object;
+            }
+        }
+    }
+
+    /**
+     * Adds an object whose state is published on the snapshots but that is stepped by something else, like the
+     * objects of a sharded world
+     *
+     * @param object Object to publish
+     */
+    public void addSnapshotable(ISnapshotable<?> object) {
+        snapshotables.add(object);
+    }
+
+    /**
+     * Removes an object added with addSnapshotable
+     *
+     * @param object Object to stop publishing
+     */
+    public void removeSnapshotable(ISnapshotable<?> object) {
+        snapshotables.remove(object);
+    }
+
+    /**
+     * Adds a system to the game loop.
+     *
+     * Systems are stepped on every physics step after all the game objects, in the order they were added
+     *
+     * @param system System to add
+     */
+    public void addSystem(IGameObject system) {
+        systems.add(system);
+    }
+
+    /**
+     * Removes a system from the game loop
+     *
+     * @param system System to remove
+     */
+    public void removeSystem(IGameObject system) {
+        systems.remove(system);
+    }
+
+    /**
+     * Sets the number of threads used to step the concurrent game objects.
+     *
+     * Must be called before the game is started
+     *
+     * @param parallelism Number of worker threads, 1 or less steps all objects on the physics thread
+     */
+    public void setParallelism(int parallelism) {
+        if (stepper != null) {
+            stepper.shutdown();
+            stepper = null;
         }
+
+        if (parallelism > 1) {
+            stepper = new ParallelStepper(parallelism, PARALLEL_CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Returns the number of threads used to step the concurrent game objects
+     *
+     * @return Number of worker threads
+     */
+    public int getParallelism() {
+        return stepper != null ? stepper.getParallelism() : 1;
+    }
+
+    /**
+     * Sets the strategy used by the physics and render threads to wait for their next frame
+     *
+     * @param mode Pacing mode
+     */
+    public void setPacingMode(PacingMode mode) {
+        physicsPacer.setMode(mode);
+        renderPacer.setMode(mode);
+    }
+
+    /**
+     * Returns the strategy used by the physics and render threads to wait for their next frame
+     *
+     * @return Pacing mode
+     */
+    public PacingMode getPacingMode() {
+        return physicsPacer.getMode();
+    }
+
+    /**
+     * Sets if a render thread draws the renderables. Must be set before the physics and render threads are started,
+     * when not set the renderables added and removed are applied on each physics step so they are not held forever
+     *
+     * @param rendered True if the render loop is run
+     */
+    public void setRendered(boolean rendered) {
+        this.rendered = rendered;
+    }
+
+    /**
+     * Sets the maximum number of frames rendered per second.
+     *
+     * The physics steps keep their fixed rate regardless of the render rate
+     *
+     * @param renderRate Frames per second, RENDER_RATE_DISPLAY to match the display or RENDER_RATE_UNCAPPED
+     */
+    public void setRenderRate(double renderRate) {
+        this.renderRate = renderRate;
+    }
+
+    /**
+     * Returns the maximum number of frames rendered per second
+     *
+     * @return Frames per second, RENDER_RATE_DISPLAY to match the display or RENDER_RATE_UNCAPPED
+     */
+    public double getRenderRate() {
+        return renderRate;
+    }
+
+    /**
+     * Returns the refresh rate of the display showing the main window
+     *
+     * @return Refresh rate in hertz
+     */
+    private double getDisplayRefreshRate() {
+        try {
+            GraphicsConfiguration config = Game.getMainWindow().getGraphicsConfiguration();
+            GraphicsDevice device = config != null ? config.getDevice() :
+                    GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+
+            int refreshRate = device.getDisplayMode().getRefreshRate();
+
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return refreshRate;
+            }
+        } catch (HeadlessException ex) {
+            // No display available, use the default rate
+        }
+
+        return DEFAULT_RENDER_RATE;
     }
 
     /**
      * Render step of the game loop
      *
+     * @param snapshot Snapshot of the world to render
      * @param dt Delta time for this step
+     * @param alpha Fraction of a physics step elapsed since the snapshot was taken
      */
-    private void render(double dt) {
+    private void render(WorldSnapshot snapshot, double dt, double alpha) {
         // Gets the game's main window
         MainWindow win = Game.getMainWindow();
 
@@ -94,8 +380,8 @@ public class GameLoop {
         graphics.fillRect(0, 0, win.getWidth(), win.getHeight());
 
         // Render all objects
-        for (IRenderable object : renderables) {
-            object.render(graphics, dt);
+        for (int i = 0; i < renderables.size(); i++) {
+            renderables.get(i).render(graphics, snapshot, dt, alpha);
         }
 
         // Dispose graphics system and draw buffer
@@ -110,28 +396,253 @@ public class GameLoop {
      */
     private void timestep(double dt) {
         // Step all game objects physics
-        for (IGameObject gameObject : gameObjects) {
-            gameObject.timeStep(dt);
+        for (int i = 0; i < gameObjects.size(); i++) {
+            UpdateScheduler.step(gameObjects.get(i), tick, dt);
+        }
+
+        // Step the concurrent objects, in parallel if enabled
+        if (stepper != null) {
+            stepper.step(concurrentObjects, tick, dt);
+        } else {
+            for (int i = 0; i < concurrentObjects.size(); i++) {
+                UpdateScheduler.step(concurrentObjects.get(i), tick, dt);
+            }
+        }
+
+        // Step the systems once all objects are updated
+        for (int i = 0; i < systems.size(); i++) {
+            IGameObject system = systems.get(i);
+
+            if (system instanceof ITimedSystem) {
+                ((ITimedSystem) system).setTime(getSimulatedTime());
+            }
+
+            system.timeStep(dt);
+        }
+    }
+
+    /**
+     * Runs a single physics step of FRAME_TIME seconds.
+     *
+     * This is the only way the game objects are advanced, both by the physics loop and by the headless runner, so
+     * the results of a simulation don't depend on how it's being run.
+     */
+    public void step() {
+        // Take the poolables removed until now before applying the removals, so one removed after the flush waits for
+        // the next step instead of being recycled while still in the registries
+        int removed = takeRecycling();
+
+        // Apply the objects added or removed since the last step
+        gameObjects.flush();
+        concurrentObjects.flush();
+        snapshotables.flush();
+        systems.flush();
+
+        // Without a render thread nothing else applies the renderables
+        if (!rendered) {
+            renderables.flush();
+        }
+
+        recycle(removed);
+
+        long start = System.nanoTime();
+
+        // Set the input state for this step
+        input.poll(tick);
+
+        // Fire the events due at the start of this step
+        events.fire(getSimulatedTime() + FRAME_TIME * EVENT_TOLERANCE);
+
+        long inputEnd = System.nanoTime();
+
+        timestep(FRAME_TIME);
+        tick++;
+
+        metrics.getInput().record(inputEnd - start);
+        metrics.getPhysics().record(System.nanoTime() - inputEnd);
+    }
+
+    /**
+     * Advances the simulation by the given time as fast as possible, skipping the physics steps in which nothing
+     * can change.
+     *
+     * Steps are run as usual, but after each one the scheduled objects that are steady are postponed until the step
+     * before the next event, or before the end of the fast forward, where they are advanced in a single update. That
+     * leaves them at the time of the event when it fires. While every object is postponed and nothing is waiting to
+     * be added or removed the steps until then are skipped, so a world of steady objects moves from event to event
+     * instead of step by step. Systems and input are only run on the steps that are not skipped, timed systems keep
+     * their clocks on the simulated time and the steps in which they have work to do are not skipped. Events scheduled
+     * while running bring the postponed updates forward, and objects whose controls change while postponed are
+     * first caught up with their previous controls by UpdateSchedule.catchUp.
+     *
+     * Must be called from the physics thread or before the game is started, like step.
+     *
+     * @param duration Simulated time to advance in seconds
+     * @return Number of physics steps run
+     */
+    public long fastForward(double duration) {
+        long target = tick + Math.round(duration / FRAME_TIME);
+        long run = 0;
+
+        while (tick < target) {
+            step();
+            run++;
+
+            // Steady objects are caught up on the step before the next event or system work
+            long horizon = Math.min(target, Math.min(getEventTick(events.getNextTime()), getSystemsTick()));
+            long catchUp = horizon - 1;
+
+            if (catchUp > tick) {
+                boolean all = defer(gameObjects, catchUp);
+                all &= defer(concurrentObjects, catchUp);
+
+                if (all && !gameObjects.hasPending() && !concurrentObjects.hasPending() && !systems.hasPending()) {
+                    tick = catchUp;
+                }
+            }
+        }
+
+        return run;
+    }
+
+    /**
+     * Postpones the steady objects of a registry until the given step
+     *
+     * @param registry Registry of objects
+     * @param until Physics step in which the objects are due
+     * @return True if all the objects were postponed
+     */
+    private boolean defer(EntityRegistry<? extends IGameObject> registry, long until) {
+        boolean all = true;
+
+        for (int i = 0; i < registry.size(); i++) {
+            IGameObject object = registry.get(i);
+
+            if (object instanceof IScheduledGameObject && ((IScheduledGameObject) object).isSteady()) {
+                UpdateSchedule schedule = ((IScheduledGameObject) object).getSchedule();
+                schedule.defer(until, (IScheduledGameObject) object, this);
+
+                all &= schedule.getNextTick() >= until;
+            } else {
+                all = false;
+            }
+        }
+
+        return all;
+    }
+
+    /**
+     * Returns the first physics step in which a timed system has work to do
+     *
+     * @return Physics step number, the largest possible if no system has work pending
+     */
+    private long getSystemsTick() {
+        long first = Long.MAX_VALUE;
+
+        for (int i = 0; i < systems.size(); i++) {
+            IGameObject system = systems.get(i);
+
+            if (system instanceof ITimedSystem) {
+                // Work due at a time is done on the step ending at it, the one before the step starting at it
+                first = Math.min(first, getEventTick(((ITimedSystem) system).getNextTime()));
+            }
+        }
+
+        return first;
+    }
+
+    /**
+     * Returns the physics step in which an event fires
+     *
+     * @param time Simulated time of the event in seconds
+     * @return Physics step number, the largest possible if the time is infinite
+     */
+    private static long getEventTick(double time) {
+        if (time == Double.POSITIVE_INFINITY) {
+            return Long.MAX_VALUE;
+        }
+
+        return (long) Math.max(0, Math.ceil(time / FRAME_TIME - EVENT_TOLERANCE));
+    }
+
+    /**
+     * Takes the poolable objects removed until now, they are moved to the recycled array
+     *
+     * @return Number of objects taken
+     */
+    private int takeRecycling() {
+        synchronized (recycleLock) {
+            int count = recyclingCount;
+
+            if (count == 0) {
+                return 0;
+            }
+
+            // Objects removed from now on are queued on the other array
+            IPoolable[] objects = recycling;
+
+            recycling = recycled;
+            recyclingCount = 0;
+            recycled = objects;
+
+            return count;
         }
     }
 
     /**
-     * Loop the objects in the game
+     * Recycles the poolable objects taken before the removals were applied
+     *
+     * @param count Number of objects taken
+     */
+    private void recycle(int count) {
+        for (int i = 0; i < count; i++) {
+            recycled[i].recycle();
+            recycled[i] = null;
+        }
+    }
+
+    /**
+     * Returns the number of physics steps run since the loop was created
+     *
+     * @return Number of physics steps
      */
-    public void loop() {
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the simulated time since the loop was created
+     *
+     * @return Simulated time in seconds
+     */
+    public double getSimulatedTime() {
+        return tick * FRAME_TIME;
+    }
+
+    /**
+     * Returns the duration of each physics step
+     *
+     * @return Physics step duration in seconds
+     */
+    public static double getFrameTime() {
+        return FRAME_TIME;
+    }
+
+    /**
+     * Physics loop, steps the game objects and publishes their state.
+     *
+     * Physics are stepped in fixed increments of FRAME_TIME. The elapsed time is added to an accumulator and as many
+     * physics steps as owed are run, up to MAX_CATCH_UP_STEPS per loop. If the simulation is still behind after that
+     * the remaining backlog is dropped so a slow step can't cause an ever growing amount of work on the following ones.
+     */
+    public void physicsLoop() {
         // Time step size
         double dt = 0;
-        // Current physics time step size
-        double physicStep = 0;
+        // Time owed to the physics engine
+        double accumulator = 0;
         // Store the current time to calculate the time step
         long lastTime = System.nanoTime();
 
-        // Store the current time for FPS calculation
-        long timer = System.currentTimeMillis();
-
-        int rFrames = 0;
-        int tFrames = 0;
-
         while (Game.isRunning()) {
             // Get current nano time
             long now = System.nanoTime();
@@ -141,35 +652,92 @@ public class GameLoop {
             lastTime = now;
 
             if (Game.isPhysicsRunning()) {
-                // Calculate time remaining for one physics step
-                physicStep += dt;
+                // Add the elapsed time to the time owed to the physics engine
+                accumulator += dt;
 
-                // If physic step is complete... step
-                if (physicStep >= FRAME_TIME) {
+                // Every step owed beyond the current one is running late
+                long owed = (long) (accumulator / FRAME_TIME);
+
+                if (owed > 1) {
+                    metrics.missedPhysicsDeadlines(owed - 1);
+                }
+
+                // Run as many physics steps as owed up to the catch up limit
+                int steps = 0;
+
+                while (accumulator >= FRAME_TIME && steps < MAX_CATCH_UP_STEPS) {
                     // Remove used time from remaining physics time
-                    physicStep -= FRAME_TIME;
+                    accumulator -= FRAME_TIME;
 
-                    timestep(FRAME_TIME);
+                    step();
 
-                    tFrames++;
+                    steps++;
+                }
+
+                // If still behind drop the backlog keeping only the fraction of the current step
+                if (accumulator >= FRAME_TIME) {
+                    accumulator %= FRAME_TIME;
+                }
 
-                    MouseHandler.update();
+                // Publish the new state, it's current at the time not yet consumed by the physics engine
+                if (steps > 0) {
+                    snapshots.publish(snapshotables, tick, now - (long) (accumulator * NANO_SECONDS));
                 }
             }
 
-            render(dt);
-            rFrames++;
+            // Wait until the next physics step is due
+            physicsPacer.waitUntil(now + (long) ((FRAME_TIME - accumulator) * NANO_SECONDS));
+        }
+    }
+
+    /**
+     * Render loop, draws the latest snapshot published by the physics loop
+     */
+    public void renderLoop() {
+        // Time step size
+        double dt = 0;
+        // Store the current time to calculate the time step
+        long lastTime = System.nanoTime();
+
+        // Refresh rate used when the render rate must match the display
+        double displayRate = getDisplayRefreshRate();
+
+        // Start time of the previous frame
+        long frameStart = lastTime;
+
+        rendered = true;
+
+        while (Game.isRunning()) {
+            // Get current nano time
+            long now = System.nanoTime();
+
+            // Calculate elapsed time and reset last time
+            dt = (now - lastTime) / NANO_SECONDS;
+            lastTime = now;
+
+            // Apply the renderables added or removed since the last frame
+            renderables.flush();
+
+            // Get the latest state and calculate how far the physics engine is past it
+            WorldSnapshot snapshot = snapshots.latest();
+            double alpha = 0;
+
+            if (Game.isPhysicsRunning()) {
+                alpha = ((now - snapshot.getTime()) / NANO_SECONDS) / FRAME_TIME;
+                alpha = Math.max(0, Math.min(1, alpha));
+            }
 
-            if (System.currentTimeMillis() - timer > 1000) {
-                timer += 1000;
+            render(snapshot, dt, alpha);
 
-                fps = rFrames;
-                tps = tFrames;
+            metrics.getRender().record(System.nanoTime() - now);
+            metrics.getFrameTime().record(now - frameStart);
+            frameStart = now;
 
-                System.out.printf("FPS: %d | TPS: %d\n", fps, tps);
+            // Wait until the next frame is due if the render rate is capped
+            double rate = renderRate == RENDER_RATE_DISPLAY ? displayRate : renderRate;
 
-                rFrames = 0;
-                tFrames = 0;
+            if (rate > 0) {
+                renderPacer.waitUntil(now + (long) (NANO_SECONDS / rate));
             }
         }
     }
@@ -0,0 +1,177 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Runs the simulation without a window or render loop.
+ *
+ * The game objects are advanced with the same fixed physics step used by the interactive game, either as fast
+ * as the CPU allows or paced at a given time compression factor. Once a second the achieved simulated seconds per
+ * wall clock second are reported.
+ */
+public class HeadlessRunner {
+    /**
+     * Number of nano seconds in a second
+     */
+    private static double NANO_SECONDS = 1000000000;
+    /**
+     * Time compression factor used to run the simulation as fast as possible
+     */
+    public static double UNBOUNDED = Double.POSITIVE_INFINITY;
+
+    private GameLoop gameLoop;
+    private volatile double timeCompression;
+    private FramePacer pacer;
+
+    private volatile boolean running = false;
+
+    private double simulatedTime = 0;
+    private double wallTime = 0;
+
+    /**
+     * Creates a new headless runner
+     *
+     * @param gameLoop Game loop to step
+     * @param timeCompression Simulated seconds per wall clock second, UNBOUNDED to run as fast as possible
+     */
+    public HeadlessRunner(GameLoop gameLoop, double timeCompression) {
+        this.gameLoop = gameLoop;
+        this.timeCompression = timeCompression;
+        this.pacer = new FramePacer(PacingMode.Hybrid);
+    }
+
+    /**
+     * Sets the strategy used to wait for the next step when running with time compression
+     *
+     * @param mode Pacing mode
+     */
+    public void setPacingMode(PacingMode mode) {
+        pacer.setMode(mode);
+    }
+
+    /**
+     * Returns the time compression factor
+     *
+     * @return Simulated seconds per wall clock second
+     */
+    public double getTimeCompression() {
+        return timeCompression;
+    }
+
+    /**
+     * Sets the time compression factor, can be changed while running
+     *
+     * @param timeCompression Simulated seconds per wall clock second, UNBOUNDED to run as fast as possible
+     */
+    public void setTimeCompression(double timeCompression) {
+        this.timeCompression = timeCompression;
+    }
+
+    /**
+     * Returns the time simulated on the last run
+     *
+     * @return Simulated time in seconds
+     */
+    public double getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    /**
+     * Returns the wall clock time taken by the last run
+     *
+     * @return Wall clock time in seconds
+     */
+    public double getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Returns the simulation speed achieved on the last run
+     *
+     * @return Simulated seconds per wall clock second
+     */
+    public double getSpeed() {
+        return wallTime > 0 ? simulatedTime / wallTime : 0;
+    }
+
+    /**
+     * Runs the simulation on the calling thread until the given simulated time is reached or the runner is stopped
+     *
+     * @param duration Simulated time to run in seconds, infinite to run until stopped
+     */
+    public void run(double duration) {
+        if (Double.isInfinite(duration)) {
+            runSteps(Long.MAX_VALUE);
+        } else {
+            // Tolerance so a duration that is a whole number of steps isn't rounded down to one step less
+            runSteps((long) Math.floor(duration / GameLoop.getFrameTime() + 1e-9));
+        }
+    }
+
+    /**
+     * Runs the simulation on the calling thread until the given number of physics steps is run or the runner is
+     * stopped
+     *
+     * @param steps Number of physics steps to run
+     */
+    public void runSteps(long steps) {
+        double frameTime = GameLoop.getFrameTime();
+        long step = 0;
+
+        running = true;
+        simulatedTime = 0;
+        wallTime = 0;
+
+        long start = System.nanoTime();
+
+        // Wall clock and simulated time from which the current time compression is applied
+        long anchor = start;
+        double anchorTime = 0;
+        double compression = timeCompression;
+
+        // Time in which the simulation speed was last reported
+        long timer = start;
+        double reportedTime = 0;
+
+        while (running && step < steps) {
+            long now = System.nanoTime();
+
+            // When the compression changes keep the current position, so the target doesn't jump
+            if (timeCompression != compression) {
+                compression = timeCompression;
+                anchor = now;
+                anchorTime = simulatedTime;
+            }
+
+            // Simulated time that should be reached at this moment
+            double target = anchorTime + ((now - anchor) / NANO_SECONDS) * compression;
+
+            if (simulatedTime < target) {
+                gameLoop.step();
+                step++;
+                simulatedTime = step * frameTime;
+            } else {
+                // Ahead of the requested compression, wait until the next step is due
+                pacer.waitUntil(anchor + (long) (((simulatedTime + frameTime - anchorTime) / compression) * NANO_SECONDS));
+            }
+
+            if (now - timer > NANO_SECONDS) {
+                double interval = (now - timer) / NANO_SECONDS;
+                System.out.printf("Sim time: %.1f s | Speed: %.1fx\n", simulatedTime, (simulatedTime - reportedTime) / interval);
+
+                timer = now;
+                reportedTime = simulatedTime;
+            }
+        }
+
+        wallTime = (System.nanoTime() - start) / NANO_SECONDS;
+        running = false;
+
+        System.out.printf("Simulated %.1f s in %.1f s | Speed: %.1fx\n", simulatedTime, wallTime, getSpeed());
+    }
+
+    /**
+     * Stops the runner after the current step
+     */
+    public void stop() {
+        running = false;
+    }
+}
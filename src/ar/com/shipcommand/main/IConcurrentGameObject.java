@@ -0,0 +1,12 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Interface for game objects whose time step can run at the same time as the time step of other concurrent objects.
+ *
+ * To be concurrent an object's time step must only write its own state and must not read the state of any other
+ * game object, input handler or shared structure that can be modified during the physics step. Objects that need
+ * to read other objects or the input must implement IGameObject instead, those are always stepped on the physics
+ * thread before the concurrent objects.
+ */
+public interface IConcurrentGameObject extends IGameObject {
+}
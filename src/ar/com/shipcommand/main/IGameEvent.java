@@ -0,0 +1,13 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Something that must happen at a given simulated time, like an order, a sensor check or reaching a waypoint
+ */
+public interface IGameEvent {
+    /**
+     * Called at the start of the first physics step at or after the time of the event
+     *
+     * @param time Simulated time the event was scheduled at, in seconds
+     */
+    void fire(double time);
+}
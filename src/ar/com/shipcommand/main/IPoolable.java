@@ -0,0 +1,15 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Interface for objects that are reused after being removed from the game loop.
+ *
+ * Removals are deferred, so a removed object can't be reused right away. The game loop calls recycle once the
+ * object was removed from the physics registries, from there on it's no longer stepped and can be handed out again.
+ * Poolable objects are drawn from their published state, they must not be renderables themselves.
+ */
+public interface IPoolable {
+    /**
+     * Called from the physics thread once the object was removed from the game loop
+     */
+    void recycle();
+}
@@ -0,0 +1,31 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Interface for game objects that don't need to be updated on every physics step.
+ *
+ * After each update the object is asked for its update tier, and it's not stepped again until the interval of that
+ * tier is elapsed. When it's stepped it receives the full time elapsed since the last update.
+ */
+public interface IScheduledGameObject extends IGameObject {
+    /**
+     * Returns the schedule of the object
+     *
+     * @return Schedule used to track the object updates
+     */
+    UpdateSchedule getSchedule();
+
+    /**
+     * Returns the tier in which the object must be updated given its current state
+     *
+     * @return Update tier
+     */
+    UpdateTier getUpdateTier();
+
+    /**
+     * Returns if the object will keep changing at the same rates until something changes its controls, so it can be
+     * advanced over a long time in a single update
+     *
+     * @return True if steady
+     */
+    boolean isSteady();
+}
@@ -0,0 +1,27 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Interface for objects whose state is published by the physics thread so it can be read by the render thread.
+ *
+ * The render thread never reads the object directly, it reads a state object holding a copy of the values needed
+ * to draw it. State objects are created once per snapshot buffer and reused on every physics step.
+ *
+ * @param <S> Type of the object holding the published state
+ */
+public interface ISnapshotable<S> {
+    /**
+     * Creates an empty state object to hold the values published by this object
+     *
+     * @return New state object
+     */
+    S createState();
+
+    /**
+     * Copies the current object's state to the given state object.
+     *
+     * Called from the physics thread after each physics step
+     *
+     * @param state State object to write
+     */
+    void writeState(S state);
+}
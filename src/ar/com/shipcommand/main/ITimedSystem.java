@@ -0,0 +1,24 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Interface for systems that do their work at given simulated times, like sensor scans or periodic samples.
+ *
+ * Before each step the game loop sets the system's clock to the simulated time at the start of the step, so the
+ * clock doesn't fall behind the loop when a fast forward skips steps. The fast forward asks the system for the time
+ * of its next work and doesn't skip the step in which it's due.
+ */
+public interface ITimedSystem extends IGameObject {
+    /**
+     * Sets the system's clock, called by the game loop before the system is stepped
+     *
+     * @param time Simulated time at the start of the step in seconds
+     */
+    void setTime(double time);
+
+    /**
+     * Returns the time at which the system has work to do
+     *
+     * @return Simulated time in seconds, infinite if it has none pending
+     */
+    double getNextTime();
+}
@@ -0,0 +1,154 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Map from objects, compared by identity, to non negative int values.
+ *
+ * It uses open addressing with linear probing on plain arrays, so putting and removing keys doesn't allocate
+ * unless the table needs to grow. Not thread safe.
+ */
+class IdentityIndex {
+    /**
+     * Value returned for keys not in the map
+     */
+    static int NONE = -1;
+
+    private Object[] keys;
+    private int[] values;
+    private int size = 0;
+
+    /**
+     * Creates a new empty map
+     *
+     * @param capacity Expected number of keys
+     */
+    IdentityIndex(int capacity) {
+        int length = Integer.highestOneBit(Math.max(4, capacity * 2) - 1) << 1;
+
+        keys = new Object[length];
+        values = new int[length];
+    }
+
+    /**
+     * Returns the number of keys in the map
+     *
+     * @return Number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value of a key
+     *
+     * @param key Key to look for
+     * @return Value of the key or NONE if not in the map
+     */
+    int get(Object key) {
+        int mask = keys.length - 1;
+
+        for (int i = slot(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Sets the value of a key
+     *
+     * @param key Key to set
+     * @param value Value of the key
+     */
+    void put(Object key, int value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+
+        while (keys[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        // Keep the table at most half full
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param key Key to remove
+     * @return Value the key had or NONE if not in the map
+     */
+    int remove(Object key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+
+        while (keys[i] != key) {
+            if (keys[i] == null) {
+                return NONE;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        int value = values[i];
+        size--;
+
+        // Move back the following keys of the probe sequence so lookups don't stop at the hole
+        int hole = i;
+
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+
+        keys[hole] = null;
+
+        return value;
+    }
+
+    /**
+     * Doubles the size of the table
+     */
+    private void grow() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new Object[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the home slot of a key
+     *
+     * @param key Key
+     * @param mask Table length - 1
+     * @return Slot number
+     */
+    private static int slot(Object key, int mask) {
+        int hash = System.identityHashCode(key) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,19 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Strategies used to wait for the next frame
+ */
+public enum PacingMode {
+    /**
+     * Busy waits until the frame is due, most precise but uses a full core
+     */
+    Spin,
+    /**
+     * Sleeps until the frame is due, uses no CPU while waiting but frames can be late by the scheduler granularity
+     */
+    Sleep,
+    /**
+     * Sleeps until shortly before the frame is due and busy waits the rest
+     */
+    Hybrid
+}
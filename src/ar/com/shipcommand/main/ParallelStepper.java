@@ -0,0 +1,103 @@
+package ar.com.shipcommand.main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the time step of concurrent game objects split in chunks over a pool of worker threads
+ */
+public class ParallelStepper {
+    private ForkJoinPool pool;
+    private int chunkSize;
+
+    /**
+     * Task that steps a range of objects, splitting it in halves until it's not bigger than the chunk size
+     */
+    private class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private EntityRegistry<IConcurrentGameObject> objects;
+        private int from;
+        private int to;
+        private long tick;
+        private double dt;
+
+        StepTask(EntityRegistry<IConcurrentGameObject> objects, int from, int to, long tick, double dt) {
+            this.objects = objects;
+            this.from = from;
+            this.to = to;
+            this.tick = tick;
+            this.dt = dt;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    UpdateScheduler.step(objects.get(i), tick, dt);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new StepTask(objects, from, middle, tick, dt), new StepTask(objects, middle, to, tick, dt));
+            }
+        }
+    }
+
+    /**
+     * Creates a new parallel stepper
+     *
+     * @param parallelism Number of worker threads
+     * @param chunkSize Maximum number of objects stepped by a single task
+     */
+    public ParallelStepper(int parallelism, int chunkSize) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Returns the number of worker threads
+     *
+     * @return Number of worker threads
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Returns the maximum number of objects stepped by a single task
+     *
+     * @return Number of objects
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Steps all the given objects and waits for all of them to complete.
+     *
+     * If there are not enough objects to fill more than one chunk they are stepped on the calling thread
+     *
+     * @param objects Objects to step
+     * @param tick Number of the physics step
+     * @param dt Delta time for this step
+     */
+    public void step(EntityRegistry<IConcurrentGameObject> objects, long tick, double dt) {
+        int count = objects.size();
+
+        if (count <= chunkSize) {
+            for (int i = 0; i < count; i++) {
+                UpdateScheduler.step(objects.get(i), tick, dt);
+            }
+        } else {
+            pool.invoke(new StepTask(objects, 0, count, tick, dt));
+        }
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
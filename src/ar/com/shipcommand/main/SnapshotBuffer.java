@@ -0,0 +1,54 @@
+package ar.com.shipcommand.main;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Triple buffer used to pass world snapshots from the physics thread to the render thread without locking.
+ *
+ * The physics thread always writes the back snapshot and the render thread always reads the front snapshot. When a
+ * snapshot is complete it's swapped with the ready one, and the render thread swaps its front snapshot with the ready
+ * one when a newer snapshot is available. Each snapshot is owned by only one thread at any time.
+ */
+public class SnapshotBuffer {
+    private WorldSnapshot back;
+    private WorldSnapshot front;
+    private AtomicReference<WorldSnapshot> ready;
+
+    /**
+     * Creates a new snapshot buffer
+     */
+    public SnapshotBuffer() {
+        back = new WorldSnapshot();
+        front = new WorldSnapshot();
+        ready = new AtomicReference<>(new WorldSnapshot());
+    }
+
+    /**
+     * Writes the state of the given objects and makes it available to the render thread.
+     *
+     * Must be called only from the physics thread
+     *
+     * @param objects Objects to write
+     * @param tick Number of the physics step
+     * @param time Time in which the given state is current in nano seconds
+     */
+    public void publish(EntityRegistry<ISnapshotable<?>> objects, long tick, long time) {
+        back.write(objects, tick, time);
+        back = ready.getAndSet(back);
+    }
+
+    /**
+     * Returns the latest published snapshot.
+     *
+     * Must be called only from the render thread, the returned snapshot is valid until the next call
+     *
+     * @return Latest published snapshot
+     */
+    public WorldSnapshot latest() {
+        if (ready.get().getTick() > front.getTick()) {
+            front = ready.getAndSet(front);
+        }
+
+        return front;
+    }
+}
@@ -8,11 +8,16 @@ import org.jcp.xml.dsig.internal.MacOutputStream;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 
-public class Test implements IGameObject, IRenderable {
+public class Test implements IGameObject, IRenderable, ISnapshotable<double[]> {
     double x = 100;
     double y = 100;
+    double prevX = 100;
+    double prevY = 100;
 
     public void timeStep(double dt) {
+        prevX = x;
+        prevY = y;
+
         if (KeyHandler.isDown(KeyEvent.VK_D)) {
             x += 5;
         }
@@ -43,9 +48,26 @@ public class Test implements IGameObject, IRenderable {
         }
     }
 
-    public void render(Graphics2D graphics, double dt) {
-        Double X = new Double(x);
-        Double Y = new Double(y);
+    public double[] createState() {
+        return new double[4];
+    }
+
+    public void writeState(double[] state) {
+        state[0] = prevX;
+        state[1] = prevY;
+        state[2] = x;
+        state[3] = y;
+    }
+
+    public void render(Graphics2D graphics, WorldSnapshot snapshot, double dt, double alpha) {
+        double[] state = snapshot.getState(this);
+
+        if (state == null) {
+            return;
+        }
+
+        Double X = new Double(state[0] + (state[2] - state[0]) * alpha);
+        Double Y = new Double(state[1] + (state[3] - state[1]) * alpha);
 
         graphics.setColor(Color.green);
         graphics.drawRect(X.intValue(), Y.intValue(), 100,100);
@@ -0,0 +1,200 @@
+package ar.com.shipcommand.main;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of when a scheduled game object was last updated and when it's due again
+ */
+public class UpdateSchedule {
+    /**
+     * Key given to schedules created without one, in creation order
+     */
+    private static AtomicLong nextKey = new AtomicLong();
+
+    private UpdateTier tier = UpdateTier.Full;
+    private long lastTick = -1;
+    private volatile long nextTick = 0;
+    private int phase;
+
+    /**
+     * Step in which the object is due by its tier, before any postponement
+     */
+    private long scheduledTick = 0;
+
+    /**
+     * Object and loop of the current postponement, null when not postponed
+     */
+    private IScheduledGameObject deferredObject;
+    private GameLoop deferredLoop;
+
+    /**
+     * Creates a new schedule, due on the next physics step
+     */
+    public UpdateSchedule() {
+        this(nextKey.getAndIncrement());
+    }
+
+    /**
+     * Creates a new schedule, due on the next physics step
+     *
+     * @param key Value used to choose the steps in which the object is updated, like the object's id
+     */
+    public UpdateSchedule(long key) {
+        setKey(key);
+    }
+
+    /**
+     * Sets the value used to choose the steps in which the object is updated. The same key gives the same steps on
+     * every run, which keeps recorded sessions reproducible
+     *
+     * @param key Value used to choose the update steps, like the object's id
+     */
+    public void setKey(long key) {
+        // Spread the objects so the ones on the same tier are not all updated on the same step
+        phase = (int) Math.floorMod(key, (long) UpdateTier.Low.getInterval());
+    }
+
+    /**
+     * Returns the current update tier
+     *
+     * @return Update tier
+     */
+    public UpdateTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Returns if the object must be updated on the given step
+     *
+     * @param tick Physics step number
+     * @return True if the update is due
+     */
+    public boolean isDue(long tick) {
+        return tick >= nextTick;
+    }
+
+    /**
+     * Returns the number of physics steps elapsed since the last update
+     *
+     * @param tick Current physics step number
+     * @return Number of physics steps, 1 if the object was never updated
+     */
+    public long elapsed(long tick) {
+        return lastTick >= 0 ? tick - lastTick : 1;
+    }
+
+    /**
+     * Records an update and schedules the next one
+     *
+     * @param tick Physics step number of the update
+     * @param tier Tier to use from now on
+     */
+    public void updated(long tick, UpdateTier tier) {
+        int interval = tier.getInterval();
+
+        this.tier = tier;
+        this.lastTick = tick;
+        this.scheduledTick = tick + interval - ((tick + phase) % interval);
+        this.nextTick = scheduledTick;
+
+        clearDeferral();
+    }
+
+    /**
+     * Returns the physics step in which the object is due
+     *
+     * @return Physics step number
+     */
+    public long getNextTick() {
+        return nextTick;
+    }
+
+    /**
+     * Postpones the next update until the given step, used to advance a steady object over many steps at once.
+     *
+     * The step is recomputed from the one given by the object's tier each time, so an earlier step than the one of
+     * a previous call brings the update forward. Objects that were never updated, or that were promoted and not
+     * updated since, are not postponed
+     *
+     * @param tick Physics step number
+     * @param object Object owning the schedule, caught up by catchUp
+     * @param loop Game loop stepping the object
+     */
+    public void defer(long tick, IScheduledGameObject object, GameLoop loop) {
+        if (lastTick < 0 || scheduledTick <= lastTick) {
+            return;
+        }
+
+        if (tick > scheduledTick) {
+            nextTick = tick;
+            deferredObject = object;
+            deferredLoop = loop;
+        } else {
+            nextTick = scheduledTick;
+            clearDeferral();
+        }
+    }
+
+    /**
+     * Advances a postponed object to the start of the current physics step with its current controls. Must be
+     * called from the physics thread before the controls of the object are changed, otherwise the new controls
+     * would be applied to the whole postponed interval
+     */
+    public void catchUp() {
+        GameLoop loop = deferredLoop;
+        IScheduledGameObject object = deferredObject;
+
+        if (loop == null) {
+            return;
+        }
+
+        clearDeferral();
+
+        long tick = loop.getTick();
+
+        // Objects already due are updated on this step as usual
+        if (tick >= nextTick) {
+            return;
+        }
+
+        long elapsed = tick - 1 - lastTick;
+
+        if (elapsed > 0) {
+            object.timeStep(elapsed * GameLoop.getFrameTime());
+            lastTick = tick - 1;
+        }
+
+        nextTick = tick;
+    }
+
+    /**
+     * Makes the object due on the next physics step, used when its state changed and must be updated at full rate
+     */
+    public void promote() {
+        tier = UpdateTier.Full;
+        scheduledTick = 0;
+        nextTick = 0;
+
+        clearDeferral();
+    }
+
+    /**
+     * Sets the schedule as new, used when the object is reused
+     */
+    public void reset() {
+        tier = UpdateTier.Full;
+        lastTick = -1;
+        scheduledTick = 0;
+        nextTick = 0;
+
+        clearDeferral();
+    }
+
+    /**
+     * Forgets the current postponement
+     */
+    private void clearDeferral() {
+        deferredObject = null;
+        deferredLoop = null;
+    }
+}
@@ -0,0 +1,28 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Steps game objects honoring the schedule of the ones that implement IScheduledGameObject
+ */
+public class UpdateScheduler {
+    /**
+     * Steps the given object if it's due on this physics step
+     *
+     * @param object Object to step
+     * @param tick Current physics step number
+     * @param dt Duration of each physics step
+     */
+    public static void step(IGameObject object, long tick, double dt) {
+        if (!(object instanceof IScheduledGameObject)) {
+            object.timeStep(dt);
+            return;
+        }
+
+        IScheduledGameObject scheduled = (IScheduledGameObject) object;
+        UpdateSchedule schedule = scheduled.getSchedule();
+
+        if (schedule.isDue(tick)) {
+            scheduled.timeStep(schedule.elapsed(tick) * dt);
+            schedule.updated(tick, scheduled.getUpdateTier());
+        }
+    }
+}
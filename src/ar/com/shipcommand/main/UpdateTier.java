@@ -0,0 +1,34 @@
+package ar.com.shipcommand.main;
+
+/**
+ * Level of detail tiers that define how often a scheduled game object is updated
+ */
+public enum UpdateTier {
+    /**
+     * Updated on every physics step
+     */
+    Full(1),
+    /**
+     * Updated every 6 physics steps (10 Hz)
+     */
+    Medium(6),
+    /**
+     * Updated every 60 physics steps (1 Hz)
+     */
+    Low(60);
+
+    private int interval;
+
+    UpdateTier(int interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the number of physics steps between updates
+     *
+     * @return Number of physics steps
+     */
+    public int getInterval() {
+        return interval;
+    }
+}
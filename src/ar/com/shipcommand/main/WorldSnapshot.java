@@ -0,0 +1,128 @@
+package ar.com.shipcommand.main;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+/**
+ * State of all snapshotable objects of the game at the end of a physics step.
+ *
+ * Snapshots are written by the physics thread and read by the render thread. A snapshot is never accessed by both
+ * threads at the same time, ownership is handed from one thread to the other by the SnapshotBuffer.
+ */
+public class WorldSnapshot {
+    /**
+     * Holds the state of an object and the step in which it was last written
+     */
+    private static class Entry {
+        ISnapshotable<?> object;
+        Object state;
+        long tick;
+    }
+
+    private IdentityHashMap<ISnapshotable<?>, Entry> entries;
+
+    /**
+     * Entries of the removed poolable objects, kept to be reused when the objects are added again
+     */
+    private IdentityHashMap<ISnapshotable<?>, Entry> retired;
+
+    private long tick = -1;
+    private long time = 0;
+
+    /**
+     * Creates a new empty snapshot
+     */
+    public WorldSnapshot() {
+        entries = new IdentityHashMap<>();
+        retired = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns the number of the physics step this snapshot belongs to
+     *
+     * @return Physics step number, -1 if nothing was written yet
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the time in which the state of this snapshot was current
+     *
+     * @return Time in nano seconds as returned by System.nanoTime()
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the published state of the specified object
+     *
+     * @param object Object to get the state of
+     * @param <S> Type of the state object
+     * @return State of the object or null if the object is not in the snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public <S> S getState(ISnapshotable<S> object) {
+        Entry entry = entries.get(object);
+
+        if (entry == null) {
+            return null;
+        }
+
+        return (S) entry.state;
+    }
+
+    /**
+     * Writes the state of the given objects to this snapshot.
+     *
+     * Objects that were on the snapshot but are no longer in the given collection are removed, the state of poolable
+     * objects is kept to be reused when they are added again.
+     *
+     * @param objects Objects to write
+     * @param tick Number of the physics step
+     * @param time Time in which the given state is current in nano seconds
+     */
+    @SuppressWarnings("unchecked")
+    void write(EntityRegistry<ISnapshotable<?>> objects, long tick, long time) {
+        this.tick = tick;
+        this.time = time;
+
+        for (int i = 0; i < objects.size(); i++) {
+            ISnapshotable<?> object = objects.get(i);
+            Entry entry = entries.get(object);
+
+            if (entry == null) {
+                entry = retired.remove(object);
+
+                if (entry == null) {
+                    entry = new Entry();
+                    entry.object = object;
+                    entry.state = object.createState();
+                }
+
+                entries.put(object, entry);
+            }
+
+            entry.tick = tick;
+            ((ISnapshotable<Object>) object).writeState(entry.state);
+        }
+
+        // Remove the objects that were not written on this step
+        if (entries.size() > 0) {
+            Iterator<Entry> iterator = entries.values().iterator();
+
+            while (iterator.hasNext()) {
+                Entry removed = iterator.next();
+
+                if (removed.tick != tick) {
+                    if (removed.object instanceof IPoolable) {
+                        retired.put(removed.object, removed);
+                    }
+
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
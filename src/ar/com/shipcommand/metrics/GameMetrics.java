@@ -0,0 +1,160 @@
+package ar.com.shipcommand.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime metrics of the game loop.
+ *
+ * Keeps latency histograms of the physics, render and input phases, the time between rendered frames and the
+ * number of physics steps that ran late or were dropped.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    /**
+     * Name used to register the metrics on the JMX server
+     */
+    public static String OBJECT_NAME = "ar.com.shipcommand:type=GameMetrics";
+
+    private PhaseMetrics physics;
+    private PhaseMetrics render;
+    private PhaseMetrics input;
+    private PhaseMetrics frameTime;
+
+    private AtomicLong missedPhysicsDeadlines;
+
+    /**
+     * Creates new empty game metrics
+     */
+    public GameMetrics() {
+        physics = new PhaseMetrics("Physics");
+        render = new PhaseMetrics("Render");
+        input = new PhaseMetrics("Input");
+        frameTime = new PhaseMetrics("Frame");
+
+        missedPhysicsDeadlines = new AtomicLong();
+    }
+
+    /**
+     * Registers the metrics on the platform JMX server
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the duration of the physics steps, recorded by the physics thread
+     *
+     * @return Physics phase metrics
+     */
+    public PhaseMetrics getPhysics() {
+        return physics;
+    }
+
+    /**
+     * Returns the duration of the render frames, recorded by the render thread
+     *
+     * @return Render phase metrics
+     */
+    public PhaseMetrics getRender() {
+        return render;
+    }
+
+    /**
+     * Returns the duration of the input processing on each physics step, recorded by the physics thread
+     *
+     * @return Input phase metrics
+     */
+    public PhaseMetrics getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the time between consecutive rendered frames, recorded by the render thread
+     *
+     * @return Frame time metrics
+     */
+    public PhaseMetrics getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * Adds the given number of physics steps to the count of missed deadlines
+     *
+     * @param steps Number of steps that ran late or were dropped
+     */
+    public void missedPhysicsDeadlines(long steps) {
+        missedPhysicsDeadlines.addAndGet(steps);
+    }
+
+    public long getMissedPhysicsDeadlines() {
+        return missedPhysicsDeadlines.get();
+    }
+
+    public double getTicksPerSecond() {
+        return physics.getRate();
+    }
+
+    public double getFramesPerSecond() {
+        return render.getRate();
+    }
+
+    public double getPhysicsP50() {
+        return physics.getP50();
+    }
+
+    public double getPhysicsP99() {
+        return physics.getP99();
+    }
+
+    public double getPhysicsMax() {
+        return physics.getMax();
+    }
+
+    public double getRenderP50() {
+        return render.getP50();
+    }
+
+    public double getRenderP99() {
+        return render.getP99();
+    }
+
+    public double getRenderMax() {
+        return render.getMax();
+    }
+
+    public double getInputP50() {
+        return input.getP50();
+    }
+
+    public double getInputP99() {
+        return input.getP99();
+    }
+
+    public double getInputMax() {
+        return input.getMax();
+    }
+
+    public double getFrameTimeP50() {
+        return frameTime.getP50();
+    }
+
+    public double getFrameTimeP99() {
+        return frameTime.getP99();
+    }
+
+    public double getFrameTimeMax() {
+        return frameTime.getMax();
+    }
+}
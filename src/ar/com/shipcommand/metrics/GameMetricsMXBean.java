@@ -0,0 +1,38 @@
+package ar.com.shipcommand.metrics;
+
+/**
+ * Management interface used to expose the game loop metrics over JMX.
+ *
+ * All durations are in milliseconds and belong to the last complete one second interval
+ */
+public interface GameMetricsMXBean {
+    double getTicksPerSecond();
+
+    double getFramesPerSecond();
+
+    double getPhysicsP50();
+
+    double getPhysicsP99();
+
+    double getPhysicsMax();
+
+    double getRenderP50();
+
+    double getRenderP99();
+
+    double getRenderMax();
+
+    double getInputP50();
+
+    double getInputP99();
+
+    double getInputMax();
+
+    double getFrameTimeP50();
+
+    double getFrameTimeP99();
+
+    double getFrameTimeMax();
+
+    long getMissedPhysicsDeadlines();
+}
@@ -0,0 +1,170 @@
+package ar.com.shipcommand.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies with logarithmic buckets.
+ *
+ * Values are grouped in buckets whose width doubles on each power of two, each power of two being split in
+ * SUB_BUCKETS linear buckets. That gives a fixed relative precision of about 6% over the full range of values with
+ * a small fixed size array, so recording a value is a couple of bit operations and never allocates.
+ *
+ * Recording is not thread safe, each histogram must be written by a single thread.
+ */
+public class LatencyHistogram {
+    /**
+     * Number of bits used for the linear buckets inside each power of two
+     */
+    private static int SUB_BUCKET_BITS = 4;
+    /**
+     * Number of linear buckets inside each power of two
+     */
+    private static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Highest power of two that can be recorded, higher values are counted on the last bucket (about 18 minutes)
+     */
+    private static int MAX_MAGNITUDE = 40;
+
+    private long[] counts;
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    /**
+     * Creates a new empty histogram
+     */
+    public LatencyHistogram() {
+        counts = new long[bucketIndex((1L << MAX_MAGNITUDE) - 1) + 1];
+    }
+
+    /**
+     * Returns the index of the bucket for the given value
+     *
+     * @param value Value in nano seconds
+     * @return Bucket index
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS * 2) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the value in the middle of the specified bucket
+     *
+     * @param index Bucket index
+     * @return Value in nano seconds
+     */
+    private static long bucketValue(int index) {
+        if (index < SUB_BUCKETS * 2) {
+            return index;
+        }
+
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long lower = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+
+        return lower + ((1L << shift) >> 1);
+    }
+
+    /**
+     * Records a value
+     *
+     * @param nanos Value in nano seconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts[Math.min(bucketIndex(nanos), counts.length - 1)]++;
+        count++;
+        total += nanos;
+
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Returns the number of recorded values
+     *
+     * @return Number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the highest recorded value
+     *
+     * @return Value in nano seconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the average of the recorded values
+     *
+     * @return Value in nano seconds
+     */
+    public double getMean() {
+        return count > 0 ? (double) total / count : 0;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall
+     *
+     * @param percentile Percentile from 0 to 100
+     * @return Value in nano seconds, with the precision of the bucket it falls in
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil((percentile / 100) * count));
+        long accumulated = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            accumulated += counts[i];
+
+            if (accumulated >= target) {
+                return Math.min(bucketValue(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Removes all recorded values
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Creates a copy of this histogram
+     *
+     * @return New histogram with the same values
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.count = count;
+        copy.total = total;
+        copy.max = max;
+
+        return copy;
+    }
+}
@@ -0,0 +1,110 @@
+package ar.com.shipcommand.metrics;
+
+/**
+ * Latency statistics of one phase of the game loop.
+ *
+ * Durations are recorded by the thread running the phase. Every INTERVAL the recorded values are published as the
+ * interval histogram, which can be safely read from any thread, and recording starts again from zero.
+ */
+public class PhaseMetrics {
+    /**
+     * Duration of each interval in nano seconds
+     */
+    private static long INTERVAL = 1000000000;
+
+    private String name;
+
+    private LatencyHistogram current;
+    private volatile LatencyHistogram interval;
+    private volatile double rate = 0;
+
+    private long intervalStart;
+
+    /**
+     * Creates new phase metrics
+     *
+     * @param name Name of the phase
+     */
+    public PhaseMetrics(String name) {
+        this.name = name;
+
+        current = new LatencyHistogram();
+        interval = new LatencyHistogram();
+        intervalStart = System.nanoTime();
+    }
+
+    /**
+     * Returns the name of the phase
+     *
+     * @return Phase name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the duration of one run of the phase.
+     *
+     * Must be called always from the same thread
+     *
+     * @param nanos Duration in nano seconds
+     */
+    public void record(long nanos) {
+        current.record(nanos);
+
+        long now = System.nanoTime();
+
+        if (now - intervalStart >= INTERVAL) {
+            rate = current.getCount() / ((now - intervalStart) / 1e9);
+            interval = current.copy();
+
+            current.reset();
+            intervalStart = now;
+        }
+    }
+
+    /**
+     * Returns the histogram of the last complete interval
+     *
+     * @return Histogram of durations in nano seconds
+     */
+    public LatencyHistogram getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns how many times per second the phase was run on the last complete interval
+     *
+     * @return Runs per second
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the median duration of the last complete interval
+     *
+     * @return Duration in milliseconds
+     */
+    public double getP50() {
+        return interval.getValueAtPercentile(50) / 1e6;
+    }
+
+    /**
+     * Returns the 99th percentile duration of the last complete interval
+     *
+     * @return Duration in milliseconds
+     */
+    public double getP99() {
+        return interval.getValueAtPercentile(99) / 1e6;
+    }
+
+    /**
+     * Returns the maximum duration of the last complete interval
+     *
+     * @return Duration in milliseconds
+     */
+    public double getMax() {
+        return interval.getMax() / 1e6;
+    }
+}
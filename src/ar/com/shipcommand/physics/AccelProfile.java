@@ -1,11 +1,12 @@
 package ar.com.shipcommand.physics;
 
 import ar.com.shipcommand.physics.magnitudes.Speed;
+import ar.com.shipcommand.physics.magnitudes.SpeedUnits;
 
 public class AccelProfile {
     protected class AccelProfileNode {
-        Speed speed;
-        Speed accel;
+        double speed;
+        double accel;
         AccelProfileNode next = null;
         AccelProfileNode prev = null;
     }
@@ -16,51 +17,95 @@ public class AccelProfile {
 
     public void add(Speed speed, Speed accel) {
         AccelProfileNode node = new AccelProfileNode();
-        node.speed = speed;
-        node.accel = accel;
+        node.speed = speed.inMetersPerSecond();
+        node.accel = accel.inMetersPerSecond();
 
         if (last != null) {
             last.next = node;
             node.prev = last;
-            last = node;
         }
 
         if (first == null) {
             first = node;
         }
+
+        last = node;
     }
 
     public Speed getMaxSpeed() {
-        if (last != null) return last.speed;
+        if (last != null) return new Speed(last.speed, SpeedUnits.MetersPerSecond);
         return null;
     }
 
+    /**
+     * Returns the highest speed of the profile
+     *
+     * @return Speed in meters per second, 0 if the profile is empty
+     */
+    public double getMaxSpeedMetersPerSecond() {
+        return last != null ? last.speed : 0;
+    }
+
     public void interpolate(Speed speed, Speed accel, double ratio) {
+        accel.setMetersPerSecond(interpolate(speed.inMetersPerSecond(), ratio));
+    }
+
+    /**
+     * Returns the acceleration at the given speed
+     *
+     * @param ms Current speed in meters per second
+     * @param ratio Throttle ratio
+     * @return Acceleration in meters per second each second
+     */
+    public double interpolate(double ms, double ratio) {
         if (first == null) {
-            accel.setMetersPerSecond(0);
-            return;
+            return 0;
         }
 
         if (current == null) {
             current = first;
         }
 
-        double ms = speed.inMetersPerSecond();
-
-        while (ms > current.speed.inMetersPerSecond() && current.next != null) current = current.next;
-        while (ms < current.speed.inMetersPerSecond() && current.prev != null) current = current.prev;
+        while (ms > current.speed && current.next != null) current = current.next;
+        while (ms < current.speed && current.prev != null) current = current.prev;
 
         if (current.next != null) {
             double x = ms;
-            double x0 = current.speed.inMetersPerSecond();
-            double y0 = current.accel.inMetersPerSecond();
-            double x1 = current.next.speed.inMetersPerSecond();
-            double y1 = current.next.accel.inMetersPerSecond();
+            double x0 = current.speed;
+            double y0 = current.accel;
+            double x1 = current.next.speed;
+            double y1 = current.next.accel;
 
             double y = ((y0 * (x1 - x)) + (y1 * (x - x0))) / (x1 - x0);
-            accel.setMetersPerSecond(y * ratio);
+            return y * ratio;
         } else {
-            accel.setMetersPerSecond(0);
+            return 0;
+        }
+    }
+
+    /**
+     * Creates an immutable copy of this profile that can be shared by many platforms.
+     * Acceleration values are in meters per second each second
+     *
+     * @return New motion profile
+     */
+    public MotionProfile toMotionProfile() {
+        int size = 0;
+
+        for (AccelProfileNode node = first; node != null; node = node.next) {
+            size++;
         }
+
+        double[] speeds = new double[size];
+        double[] values = new double[size];
+        int i = 0;
+
+        for (AccelProfileNode node = first; node != null; node = node.next) {
+            speeds[i] = node.speed;
+            values[i] = node.accel;
+            i++;
+        }
+
+        return new MotionProfile(speeds, values);
     }
 }
@@ -0,0 +1,198 @@
+package ar.com.shipcommand.physics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable profile of a value that depends on the speed, like an acceleration or a turning rate.
+ *
+ * The profile is kept as two sorted primitive arrays of speeds and values in SI units, so it can be shared by all
+ * the platforms of a class and read from many threads at once. Values are linearly interpolated between the
+ * nodes. The profile holds no lookup state, callers that look up values at similar speeds on every step can keep
+ * the segment found on the last lookup and pass it as hint, which makes most lookups a single comparison.
+ */
+public class MotionProfile {
+    private final double[] speeds;
+    private final double[] values;
+
+    /**
+     * Creates a new profile
+     *
+     * @param speeds Speeds of the nodes in meters per second
+     * @param values Values at each node in SI units
+     */
+    public MotionProfile(double[] speeds, double[] values) {
+        if (speeds.length != values.length) {
+            throw new IllegalArgumentException("Speeds and values must have the same length");
+        }
+
+        int n = speeds.length;
+
+        // Sort the nodes by speed
+        Integer[] order = new Integer[n];
+
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (a, b) -> Double.compare(speeds[a], speeds[b]));
+
+        this.speeds = new double[n];
+        this.values = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            this.speeds[i] = speeds[order[i]];
+            this.values[i] = values[order[i]];
+
+            if (i > 0 && this.speeds[i] == this.speeds[i - 1]) {
+                throw new IllegalArgumentException("Repeated speed on profile: " + this.speeds[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes
+     *
+     * @return Number of nodes
+     */
+    public int size() {
+        return speeds.length;
+    }
+
+    /**
+     * Returns the speed of a node
+     *
+     * @param i Node number
+     * @return Speed in meters per second
+     */
+    public double getSpeed(int i) {
+        return speeds[i];
+    }
+
+    /**
+     * Returns the value of a node
+     *
+     * @param i Node number
+     * @return Value in SI units
+     */
+    public double getValue(int i) {
+        return values[i];
+    }
+
+    /**
+     * Returns the speed of the last node
+     *
+     * @return Speed in meters per second, 0 if the profile is empty
+     */
+    public double getMaxSpeed() {
+        return speeds.length > 0 ? speeds[speeds.length - 1] : 0;
+    }
+
+    /**
+     * Returns if a speed is beyond the interpolated range, at or above the last node. Profiles with a single node
+     * have no interpolated range
+     *
+     * @param ms Speed in meters per second
+     * @return True if beyond the last node
+     */
+    public boolean isAbove(double ms) {
+        return speeds.length < 2 || ms >= speeds[speeds.length - 1];
+    }
+
+    /**
+     * Finds the segment to interpolate a speed, the one starting on the last node not above it. Speeds below the
+     * first node use the first segment
+     *
+     * @param ms Speed in meters per second
+     * @param hint Segment found on a previous lookup
+     * @return Segment number, from 0 to size - 2
+     */
+    public int locate(double ms, int hint) {
+        int last = speeds.length - 2;
+
+        if (last <= 0) {
+            return 0;
+        }
+
+        if (hint >= 0 && hint <= last) {
+            // Check the hinted segment and its neighbors before searching
+            if (ms >= speeds[hint] && ms < speeds[hint + 1]) {
+                return hint;
+            }
+
+            if (hint < last && ms >= speeds[hint + 1] && ms < speeds[hint + 2]) {
+                return hint + 1;
+            }
+
+            if (hint > 0 && ms >= speeds[hint - 1] && ms < speeds[hint]) {
+                return hint - 1;
+            }
+        }
+
+        if (ms < speeds[1]) {
+            return 0;
+        }
+
+        if (ms >= speeds[last]) {
+            return last;
+        }
+
+        // Binary search of the last node not above the speed
+        int low = 1;
+        int high = last;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (speeds[middle] <= ms) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Interpolates the value at a speed on the given segment
+     *
+     * @param ms Speed in meters per second
+     * @param segment Segment found with locate
+     * @return Interpolated value, 0 if the profile has less than two nodes
+     */
+    public double interpolate(double ms, int segment) {
+        if (speeds.length < 2) {
+            return 0;
+        }
+
+        double x0 = speeds[segment];
+        double y0 = values[segment];
+        double x1 = speeds[segment + 1];
+        double y1 = values[segment + 1];
+
+        return ((y0 * (x1 - ms)) + (y1 * (ms - x0))) / (x1 - x0);
+    }
+
+    /**
+     * Interpolates the value at a speed
+     *
+     * @param ms Speed in meters per second
+     * @return Interpolated value, 0 if the profile has less than two nodes
+     */
+    public double interpolate(double ms) {
+        return interpolate(ms, locate(ms, -1));
+    }
+
+    /**
+     * Returns the value of the last node scaled by the ratio between a speed and the speed of the last node, used
+     * beyond the last node by the profiles that keep growing with the speed
+     *
+     * @param ms Speed in meters per second
+     * @return Scaled value, 0 if the profile is empty
+     */
+    public double proportional(double ms) {
+        int last = speeds.length - 1;
+
+        return last >= 0 ? (ms * values[last]) / speeds[last] : 0;
+    }
+}
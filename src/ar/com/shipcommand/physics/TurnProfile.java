@@ -4,7 +4,7 @@ import ar.com.shipcommand.physics.magnitudes.Speed;
 
 public class TurnProfile {
     protected class TurnProfileNode {
-        Speed speed;
+        double speed;
         double dpm;
         TurnProfileNode next = null;
         TurnProfileNode prev = null;
@@ -16,21 +16,32 @@ public class TurnProfile {
 
     public void add(Speed speed, double dpm) {
         TurnProfileNode node = new TurnProfileNode();
-        node.speed = speed;
+        node.speed = speed.inMetersPerSecond();
         node.dpm = dpm;
 
         if (last != null) {
             last.next = node;
             node.prev = last;
-            last = node;
         }
 
         if (first == null) {
             first = node;
         }
+
+        last = node;
     }
 
     public double interpolate(Speed speed) {
+        return interpolate(speed.inMetersPerSecond());
+    }
+
+    /**
+     * Returns the turning rate at the given speed
+     *
+     * @param ms Current speed in meters per second
+     * @return Turning rate in degrees per minute
+     */
+    public double interpolate(double ms) {
         if (first == null) {
             return 0;
         }
@@ -39,27 +50,50 @@ public class TurnProfile {
             current = first;
         }
 
-        double ms = speed.inMetersPerSecond();
-
-        while (ms > current.speed.inMetersPerSecond() && current.next != null) current = current.next;
-        while (ms < current.speed.inMetersPerSecond() && current.prev != null) current = current.prev;
+        while (ms > current.speed && current.next != null) current = current.next;
+        while (ms < current.speed && current.prev != null) current = current.prev;
 
         if (current.next != null) {
             double x = ms;
-            double x0 = current.speed.inMetersPerSecond();
+            double x0 = current.speed;
             double y0 = current.dpm;
-            double x1 = current.next.speed.inMetersPerSecond();
+            double x1 = current.next.speed;
             double y1 = current.next.dpm;
 
             double y = ((y0 * (x1 - x)) + (y1 * (x - x0))) / (x1 - x0);
 
             return y;
         } else {
-            double maxSpeed = last.speed.inMetersPerSecond();
+            double maxSpeed = last.speed;
             double maxRate = last.dpm;
 
             return (ms * maxRate) / maxSpeed;
         }
     }
 
+    /**
+     * Creates an immutable copy of this profile that can be shared by many platforms.
+     * Turning rates are converted to radians per second
+     *
+     * @return New motion profile
+     */
+    public MotionProfile toMotionProfile() {
+        int size = 0;
+
+        for (TurnProfileNode node = first; node != null; node = node.next) {
+            size++;
+        }
+
+        double[] speeds = new double[size];
+        double[] values = new double[size];
+        int i = 0;
+
+        for (TurnProfileNode node = first; node != null; node = node.next) {
+            speeds[i] = node.speed;
+            values[i] = Math.toRadians(node.dpm / 60);
+            i++;
+        }
+
+        return new MotionProfile(speeds, values);
+    }
 }
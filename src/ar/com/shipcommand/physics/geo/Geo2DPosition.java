@@ -4,17 +4,27 @@ import ar.com.shipcommand.physics.magnitudes.Distance;
 
 /**
  * Geographical position of an object
+ *
+ * The coordinates are kept in radians, which is what the geographical calculations use, and the sine and cosine of
+ * the latitude are computed when the latitude changes. When the same position is compared against many others, like
+ * a sensor against its targets, its trigonometric terms are computed only once.
+ *
+ * Positions are not thread safe, but since reading them doesn't change them one that is not modified anymore can be
+ * read from many threads, once safely published.
  */
 public class Geo2DPosition {
     private double lat;
     private double lon;
 
+    private double sinLat = 0;
+    private double cosLat = 1;
+
     /**
      * Get the current latitude
      * @return Decimal Latitude
      */
     public double getLat() {
-        return lat;
+        return Math.toDegrees(lat);
     }
 
     /**
@@ -22,7 +32,7 @@ public class Geo2DPosition {
      * @return Decimal Longitude
      */
     public double getLon() {
-        return lon;
+        return Math.toDegrees(lon);
     }
 
     /**
@@ -31,7 +41,7 @@ public class Geo2DPosition {
      * @return Current latitude in radians
      */
     public double getLatRadians() {
-        return Math.toRadians(lat);
+        return lat;
     }
 
     /**
@@ -40,7 +50,25 @@ public class Geo2DPosition {
      * @return Current longitude in radians
      */
     public double getLonRadians() {
-        return Math.toRadians(lon);
+        return lon;
+    }
+
+    /**
+     * Returns the sine of the current latitude
+     *
+     * @return Sine of the latitude
+     */
+    public double getSinLat() {
+        return sinLat;
+    }
+
+    /**
+     * Returns the cosine of the current latitude
+     *
+     * @return Cosine of the latitude
+     */
+    public double getCosLat() {
+        return cosLat;
     }
 
     /**
@@ -49,7 +77,7 @@ public class Geo2DPosition {
      * @param lat Decimal Latitude
      */
     public void setLat(double lat) {
-        this.lat = lat;
+        setLatRadians(Math.toRadians(lat));
     }
 
     /**
@@ -58,7 +86,7 @@ public class Geo2DPosition {
      * @param lon Decimal Longitude
      */
     void setLon(double lon) {
-        this.lon = lon;
+        this.lon = Math.toRadians(lon);
     }
 
     /**
@@ -67,7 +95,12 @@ public class Geo2DPosition {
      * @param lat Latitude in radians
      */
     public void setLatRadians(double lat) {
-        this.lat = Math.toDegrees(lat);
+        // Keep the terms if the latitude didn't change, like a stationary object read every frame
+        if (lat != this.lat) {
+            this.lat = lat;
+            this.sinLat = Math.sin(lat);
+            this.cosLat = Math.cos(lat);
+        }
     }
 
     /**
@@ -76,7 +109,7 @@ public class Geo2DPosition {
      * @param lon Longitude in radians
      */
     public void setLonRadians(double lon) {
-        this.lon = Math.toDegrees(lon);
+        this.lon = lon;
     }
 
     /**
@@ -86,8 +119,7 @@ public class Geo2DPosition {
      * @param lon Decimal longitude
      */
     public void setPosition(double lat, double lon) {
-        this.lat = lat;
-        this.lon = lon;
+        setPostionRadians(Math.toRadians(lat), Math.toRadians(lon));
     }
 
     /**
@@ -97,8 +129,8 @@ public class Geo2DPosition {
      * @param lon Longitude in radians
      */
     public void setPostionRadians(double lat, double lon) {
-        this.lat = Math.toDegrees(lat);
-        this.lon = Math.toDegrees(lon);
+        setLatRadians(lat);
+        this.lon = lon;
     }
 
     /**
@@ -125,7 +157,10 @@ public class Geo2DPosition {
      * @return new position
      */
     public Geo2DPosition clone() {
-        return new Geo2DPosition(this.lat, this.lon);
+        Geo2DPosition result = new Geo2DPosition();
+        result.copy(this);
+
+        return result;
     }
 
     /**
@@ -134,8 +169,10 @@ public class Geo2DPosition {
      * @param pos Position to copy
      */
     public void copy(Geo2DPosition pos) {
-        this.lat = pos.getLat();
-        this.lon = pos.getLon();
+        this.lat = pos.lat;
+        this.lon = pos.lon;
+        this.sinLat = pos.sinLat;
+        this.cosLat = pos.cosLat;
     }
 
     /**
@@ -145,6 +182,16 @@ public class Geo2DPosition {
      * @param course Course in degrees from north
      */
     public void move(Distance distance, double course) {
-        Geo2DPosition newPosition = GeoTools.movePosition(this, course, distance);
+        move(distance.inMeters(), course);
+    }
+
+    /**
+     * Move the current position
+     *
+     * @param meters Distance to move in meters
+     * @param course Course in degrees from north
+     */
+    public void move(double meters, double course) {
+        GeoTools.movePosition(this, course, meters);
     }
 }
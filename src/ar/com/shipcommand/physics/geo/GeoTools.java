@@ -8,8 +8,21 @@ import ar.com.shipcommand.physics.geo.exceptions.InfiniteSolutionsException;
  * Collection of tools to calculate geographical data
  *
  * https://www.movable-type.co.uk/scripts/latlong.html
+ *
+ * The methods ending in Fast use the flat earth approximation of LocalFrame for points up to FAST_RANGE apart and
+ * below 80 degrees of latitude, and the spherical formulas otherwise. See LocalFrame for their error by range.
  */
 public class GeoTools {
+    /**
+     * Largest distance in meters handled with the flat earth approximation
+     */
+    static double FAST_RANGE = 10000;
+
+    /**
+     * Cosine of the highest latitude handled with the flat earth approximation, 80 degrees
+     */
+    static double FAST_MIN_COS_LAT = Math.cos(Math.toRadians(80));
+
     /**
      * Get distance between two points
      *
@@ -18,19 +31,45 @@ public class GeoTools {
      * @return Distance in meters between the given points
      */
     public static Distance getDistance(Geo2DPosition start, Geo2DPosition end) {
-        double φ1 = start.getLatRadians();
-        double φ2 = end.getLatRadians();
+        return new Distance(getDistanceMeters(start, end));
+    }
 
-        double Δφ = Math.toRadians(end.getLat() - start.getLat());
-        double Δλ = Math.toRadians(end.getLon() - start.getLon());
+    /**
+     * Get distance between two points
+     *
+     * @param start Start position
+     * @param end End position
+     * @return Distance in meters between the given points
+     */
+    public static double getDistanceMeters(Geo2DPosition start, Geo2DPosition end) {
+        double Δφ = end.getLatRadians() - start.getLatRadians();
+        double Δλ = end.getLonRadians() - start.getLonRadians();
 
 
         double a = Math.sin(Δφ / 2) * Math.sin(Δφ / 2) +
-                   Math.cos(φ1) * Math.cos(φ2) * Math.sin(Δλ / 2) * Math.sin(Δλ / 2);
+                   start.getCosLat() * end.getCosLat() * Math.sin(Δλ / 2) * Math.sin(Δλ / 2);
 
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
-        return new Distance(GeoConsts.EARTH_RADIUS * c);
+        return GeoConsts.EARTH_RADIUS * c;
+    }
+
+    /**
+     * Get distance between two points given in radians
+     *
+     * @param lat1 Latitude of the start point in radians
+     * @param lon1 Longitude of the start point in radians
+     * @param lat2 Latitude of the end point in radians
+     * @param lon2 Longitude of the end point in radians
+     * @return Distance in meters between the given points
+     */
+    public static double getDistanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double sinΔφ = Math.sin((lat2 - lat1) / 2);
+        double sinΔλ = Math.sin((lon2 - lon1) / 2);
+
+        double a = sinΔφ * sinΔφ + Math.cos(lat1) * Math.cos(lat2) * sinΔλ * sinΔλ;
+
+        return GeoConsts.EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
     }
 
     /**
@@ -41,13 +80,27 @@ public class GeoTools {
      * @return Bearing in degrees to from the start point to the end
      */
     public static double getBearing(Geo2DPosition start, Geo2DPosition end) {
-        double φ1 = start.getLatRadians();
         double λ1 = start.getLonRadians();
-        double φ2 = end.getLatRadians();
         double λ2 = end.getLonRadians();
 
-        double y = Math.sin(λ2 - λ1) * Math.cos(φ2);
-        double x = Math.cos(φ1) * Math.sin(φ2) - Math.sin(φ1) * Math.cos(φ2) * Math.cos(λ2 - λ1);
+        double y = Math.sin(λ2 - λ1) * end.getCosLat();
+        double x = start.getCosLat() * end.getSinLat() - start.getSinLat() * end.getCosLat() * Math.cos(λ2 - λ1);
+
+        return Math.toDegrees(Math.atan2(y, x));
+    }
+
+    /**
+     * Get the initial bearing between two points given in radians
+     *
+     * @param lat1 Latitude of the start point in radians
+     * @param lon1 Longitude of the start point in radians
+     * @param lat2 Latitude of the end point in radians
+     * @param lon2 Longitude of the end point in radians
+     * @return Bearing in degrees from the start point to the end
+     */
+    public static double getBearing(double lat1, double lon1, double lat2, double lon2) {
+        double y = Math.sin(lon2 - lon1) * Math.cos(lat2);
+        double x = Math.cos(lat1) * Math.sin(lat2) - Math.sin(lat1) * Math.cos(lat2) * Math.cos(lon2 - lon1);
 
         return Math.toDegrees(Math.atan2(y, x));
     }
@@ -61,15 +114,169 @@ public class GeoTools {
      * @return New position calculated from the given parameters
      */
     public static Geo2DPosition movePosition(Geo2DPosition start, double bearing, Distance distance) {
-        double φ = start.getLatRadians();
+        return movePosition(start, bearing, distance.inMeters());
+    }
+
+    /**
+     * Moves the given position along a bearing by a distance
+     *
+     * @param start Start position, it's changed to the new position
+     * @param bearing Bearing in degrees
+     * @param meters Distance in meters
+     * @return The start position moved
+     */
+    public static Geo2DPosition movePosition(Geo2DPosition start, double bearing, double meters) {
+        double sinφ = start.getSinLat();
+        double cosφ = start.getCosLat();
         double λ = start.getLonRadians();
 
         double θ = Math.toRadians(bearing);
-        double δ = distance.inMeters() / GeoConsts.EARTH_RADIUS;
+        double δ = meters / GeoConsts.EARTH_RADIUS;
+
+        double sinδ = Math.sin(δ);
+        double cosδ = Math.cos(δ);
+
+        double sinφ2 = sinφ * cosδ + cosφ * sinδ * Math.cos(θ);
+        double φ2 = Math.asin(sinφ2);
+        double λ2 = λ + Math.atan2(Math.sin(θ) * sinδ * cosφ, cosδ - sinφ * sinφ2);
+
+        start.setPostionRadians(φ2, λ2);
+
+        return start;
+    }
+
+    /**
+     * Get distance between two points given in radians, using the flat earth approximation for short ranges
+     *
+     * @param lat1 Latitude of the start point in radians
+     * @param lon1 Longitude of the start point in radians
+     * @param lat2 Latitude of the end point in radians
+     * @param lon2 Longitude of the end point in radians
+     * @return Distance in meters between the given points
+     */
+    public static double getDistanceMetersFast(double lat1, double lon1, double lat2, double lon2) {
+        return getDistanceMetersFast(lat1, lon1, FastTrig.sin(lat1), FastTrig.cos(lat1), lat2, lon2);
+    }
+
+    /**
+     * Get distance from a position to a point given in radians, using the flat earth approximation for short ranges
+     *
+     * @param start Start position, its cached trigonometric terms are reused across calls
+     * @param lat Latitude of the end point in radians
+     * @param lon Longitude of the end point in radians
+     * @return Distance in meters between the given points
+     */
+    public static double getDistanceMetersFast(Geo2DPosition start, double lat, double lon) {
+        return getDistanceMetersFast(start.getLatRadians(), start.getLonRadians(), start.getSinLat(), start.getCosLat(), lat, lon);
+    }
+
+    /**
+     * Get distance between two points given in radians, using the flat earth approximation for short ranges
+     *
+     * @param lat1 Latitude of the start point in radians
+     * @param lon1 Longitude of the start point in radians
+     * @param sinφ Sine of the start latitude
+     * @param cosφ Cosine of the start latitude
+     * @param lat2 Latitude of the end point in radians
+     * @param lon2 Longitude of the end point in radians
+     * @return Distance in meters between the given points
+     */
+    private static double getDistanceMetersFast(double lat1, double lon1, double sinφ, double cosφ, double lat2, double lon2) {
+        double Δφ = lat2 - lat1;
+        double Δλ = LocalFrame.normalizeLongitude(lon2 - lon1);
+
+        // East and north offsets using the cosine of the middle latitude
+        double east = Δλ * (cosφ - sinφ * Δφ / 2) * GeoConsts.EARTH_RADIUS;
+        double north = Δφ * GeoConsts.EARTH_RADIUS;
+        double distance = Math.sqrt(east * east + north * north);
+
+        if (distance <= FAST_RANGE && cosφ >= FAST_MIN_COS_LAT) {
+            return distance;
+        }
+
+        return getDistanceMeters(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Get the initial bearing between two points given in radians, using the flat earth approximation for short
+     * ranges
+     *
+     * @param lat1 Latitude of the start point in radians
+     * @param lon1 Longitude of the start point in radians
+     * @param lat2 Latitude of the end point in radians
+     * @param lon2 Longitude of the end point in radians
+     * @return Bearing in degrees from the start point to the end
+     */
+    public static double getBearingFast(double lat1, double lon1, double lat2, double lon2) {
+        return getBearingFast(lat1, lon1, FastTrig.sin(lat1), FastTrig.cos(lat1), lat2, lon2);
+    }
+
+    /**
+     * Get the initial bearing from a position to a point given in radians, using the flat earth approximation for
+     * short ranges
+     *
+     * @param start Start position, its cached trigonometric terms are reused across calls
+     * @param lat Latitude of the end point in radians
+     * @param lon Longitude of the end point in radians
+     * @return Bearing in degrees from the start point to the end
+     */
+    public static double getBearingFast(Geo2DPosition start, double lat, double lon) {
+        return getBearingFast(start.getLatRadians(), start.getLonRadians(), start.getSinLat(), start.getCosLat(), lat, lon);
+    }
+
+    /**
+     * Get the initial bearing between two points given in radians, using the flat earth approximation for short
+     * ranges
+     *
+     * @param lat1 Latitude of the start point in radians
+     * @param lon1 Longitude of the start point in radians
+     * @param sinφ Sine of the start latitude
+     * @param cosφ Cosine of the start latitude
+     * @param lat2 Latitude of the end point in radians
+     * @param lon2 Longitude of the end point in radians
+     * @return Bearing in degrees from the start point to the end
+     */
+    private static double getBearingFast(double lat1, double lon1, double sinφ, double cosφ, double lat2, double lon2) {
+        double Δφ = lat2 - lat1;
+        double Δλ = LocalFrame.normalizeLongitude(lon2 - lon1);
+
+        double east = Δλ * (cosφ - sinφ * Δφ / 2) * GeoConsts.EARTH_RADIUS;
+        double north = Δφ * GeoConsts.EARTH_RADIUS;
+
+        if (east * east + north * north <= FAST_RANGE * FAST_RANGE && cosφ >= FAST_MIN_COS_LAT) {
+            // Bearing of the chord corrected by half the convergence of the meridians
+            return Math.toDegrees(Math.atan2(east, north) - Δλ * (sinφ + cosφ * Δφ / 2) / 2);
+        }
+
+        return getBearing(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Moves the given position along a bearing by a distance, using the flat earth approximation for short ranges
+     *
+     * @param start Start position, it's changed to the new position
+     * @param bearing Bearing in degrees
+     * @param meters Distance in meters
+     * @return The start position moved
+     */
+    public static Geo2DPosition movePositionFast(Geo2DPosition start, double bearing, double meters) {
+        double φ = start.getLatRadians();
+        double cosφ = start.getCosLat();
+
+        if (Math.abs(meters) > FAST_RANGE || cosφ < FAST_MIN_COS_LAT) {
+            return movePosition(start, bearing, meters);
+        }
+
+        double θ = Math.toRadians(bearing);
+        double sinθ = FastTrig.sin(θ);
+        double cosθ = FastTrig.cos(θ);
 
+        // Series expansion of the great circle on the angular distance
+        double δ = meters / GeoConsts.EARTH_RADIUS;
+        double tanφ = start.getSinLat() / cosφ;
 
-        double φ2 = Math.asin(Math.sin(φ)*Math.cos(δ) + Math.cos(φ) * Math.sin(δ) * Math.cos(θ));
-        double λ2 = λ + Math.atan2(Math.sin(θ) * Math.sin(δ) * Math.cos(φ), Math.cos(δ) - Math.sin(φ) * Math.sin(φ2));
+        double φ2 = φ + δ * cosθ - 0.5 * δ * δ * sinθ * sinθ * tanφ;
+        double λ2 = start.getLonRadians() + (δ * sinθ + δ * δ * sinθ * cosθ * tanφ) / cosφ;
 
         start.setPostionRadians(φ2, λ2);
 
@@ -103,13 +310,18 @@ public class GeoTools {
         double φ3, λ3;
 
         // Angular dist. p1–p2
+        double sinφ1 = p1.getSinLat();
+        double cosφ1 = p1.getCosLat();
+        double sinφ2 = p2.getSinLat();
+        double cosφ2 = p2.getCosLat();
+
         double δ12 = 2 * Math.asin(
-            Math.sqrt(Math.pow(Math.sin(Δφ / 2), 2) + Math.cos(φ1) * Math.cos(φ2) * Math.sin(Math.pow(Δλ / 2, 2)))
+            Math.sqrt(Math.pow(Math.sin(Δφ / 2), 2) + cosφ1 * cosφ2 * Math.sin(Math.pow(Δλ / 2, 2)))
         );
 
         // Initial / final bearings between points 1 & 2
-        double θa = Math.acos((Math.sin(φ2) - Math.sin(φ1) * Math.cos(δ12)) / (Math.sin(δ12) * Math.cos(φ1)));
-        double θb = Math.acos((Math.sin(φ1) - Math.sin(φ2) * Math.cos(δ12)) / (Math.sin(δ12) * Math.cos(φ2)));
+        double θa = Math.acos((sinφ2 - sinφ1 * Math.cos(δ12)) / (Math.sin(δ12) * cosφ1));
+        double θb = Math.acos((sinφ1 - sinφ2 * Math.cos(δ12)) / (Math.sin(δ12) * cosφ2));
 
         double θ12;
         double θ21;
@@ -146,11 +358,12 @@ public class GeoTools {
         );
 
         // P3 latitude
-        φ3 = Math.asin(Math.sin(φ1) * Math.cos(δ13) + Math.cos(φ1) * Math.sin(δ13) * Math.cos(θ13));
+        double sinφ3 = sinφ1 * Math.cos(δ13) + cosφ1 * Math.sin(δ13) * Math.cos(θ13);
+        φ3 = Math.asin(sinφ3);
 
         // Longitude p1 – p3
         double Δλ13 = Math.atan2(
-            Math.sin(θ13) * Math.sin(δ13) * Math.cos(φ1), Math.cos(δ13) - Math.sin(φ1) * Math.sin(φ3)
+            Math.sin(θ13) * Math.sin(δ13) * cosφ1, Math.cos(δ13) - sinφ1 * sinφ3
         );
         λ3 = λ1 + Δλ13;
 
@@ -0,0 +1,185 @@
+package ar.com.shipcommand.physics.geo;
+
+/**
+ * Flat east-north frame around a reference point, for the short range computations done many times around the
+ * same point, like point defense or formation keeping.
+ *
+ * Positions are projected with the equirectangular approximation using the cosine of the latitude halfway between
+ * the origin and the position, which is expanded from the values cached for the origin so no trigonometric function
+ * is evaluated per position. Bearings are corrected by half the convergence of the meridians so they match the
+ * initial great circle bearing. Compared with the spherical formulas of GeoTools the errors grow with the cube of
+ * the range, below 80 degrees of latitude they are at most:
+ *
+ * <pre>
+ * Range      Distance   Bearing     Move
+ * 1 km       0.04 mm    0.000001°   0.3 mm
+ * 5 km       5 mm       0.00003°    3.5 cm
+ * 10 km      4 cm       0.00013°    28 cm
+ * 20 km      30 cm      0.0005°     2.2 m
+ * </pre>
+ *
+ * and about ten times less below 60 degrees. Positions further than GeoTools.FAST_RANGE from the origin, or origins
+ * above 80 degrees of latitude, fall back to the spherical formulas.
+ */
+public class LocalFrame {
+    private double lat;
+    private double lon;
+    private double sinLat;
+    private double cosLat;
+    private boolean flat;
+
+    /**
+     * Creates a new frame
+     *
+     * @param origin Reference point
+     */
+    public LocalFrame(Geo2DPosition origin) {
+        this(origin.getLatRadians(), origin.getLonRadians());
+    }
+
+    /**
+     * Creates a new frame
+     *
+     * @param lat Latitude of the reference point in radians
+     * @param lon Longitude of the reference point in radians
+     */
+    public LocalFrame(double lat, double lon) {
+        setOrigin(lat, lon);
+    }
+
+    /**
+     * Moves the frame to a new reference point
+     *
+     * @param lat Latitude of the reference point in radians
+     * @param lon Longitude of the reference point in radians
+     */
+    public void setOrigin(double lat, double lon) {
+        this.lat = lat;
+        this.lon = lon;
+        this.sinLat = Math.sin(lat);
+        this.cosLat = Math.cos(lat);
+        this.flat = cosLat >= GeoTools.FAST_MIN_COS_LAT;
+    }
+
+    /**
+     * Returns the latitude of the reference point
+     *
+     * @return Latitude in radians
+     */
+    public double getLat() {
+        return lat;
+    }
+
+    /**
+     * Returns the longitude of the reference point
+     *
+     * @return Longitude in radians
+     */
+    public double getLon() {
+        return lon;
+    }
+
+    /**
+     * Returns the distance east of the reference point
+     *
+     * @param lat Latitude in radians
+     * @param lon Longitude in radians
+     * @return Meters east, negative if west
+     */
+    public double getEast(double lat, double lon) {
+        double Δφ = lat - this.lat;
+        double Δλ = normalizeLongitude(lon - this.lon);
+
+        return Δλ * (cosLat - sinLat * Δφ / 2) * GeoConsts.EARTH_RADIUS;
+    }
+
+    /**
+     * Returns the distance north of the reference point
+     *
+     * @param lat Latitude in radians
+     * @return Meters north, negative if south
+     */
+    public double getNorth(double lat) {
+        return (lat - this.lat) * GeoConsts.EARTH_RADIUS;
+    }
+
+    /**
+     * Returns the distance from the reference point
+     *
+     * @param lat Latitude in radians
+     * @param lon Longitude in radians
+     * @return Distance in meters
+     */
+    public double getDistanceMeters(double lat, double lon) {
+        double east = getEast(lat, lon);
+        double north = getNorth(lat);
+        double distance = Math.sqrt(east * east + north * north);
+
+        if (flat && distance <= GeoTools.FAST_RANGE) {
+            return distance;
+        }
+
+        return GeoTools.getDistanceMeters(this.lat, this.lon, lat, lon);
+    }
+
+    /**
+     * Returns the initial bearing from the reference point
+     *
+     * @param lat Latitude in radians
+     * @param lon Longitude in radians
+     * @return Bearing in degrees
+     */
+    public double getBearing(double lat, double lon) {
+        double Δφ = lat - this.lat;
+        double Δλ = normalizeLongitude(lon - this.lon);
+
+        double east = Δλ * (cosLat - sinLat * Δφ / 2) * GeoConsts.EARTH_RADIUS;
+        double north = Δφ * GeoConsts.EARTH_RADIUS;
+
+        if (flat && east * east + north * north <= GeoTools.FAST_RANGE * GeoTools.FAST_RANGE) {
+            // Bearing of the chord corrected by half the convergence of the meridians
+            return Math.toDegrees(Math.atan2(east, north) - Δλ * (sinLat + cosLat * Δφ / 2) / 2);
+        }
+
+        return GeoTools.getBearing(this.lat, this.lon, lat, lon);
+    }
+
+    /**
+     * Returns the position at the given offset from the reference point
+     *
+     * @param east Meters east, negative if west
+     * @param north Meters north, negative if south
+     * @param result Position where the result is stored
+     * @return The result position
+     */
+    public Geo2DPosition toPosition(double east, double north, Geo2DPosition result) {
+        if (flat && east * east + north * north <= GeoTools.FAST_RANGE * GeoTools.FAST_RANGE) {
+            // Inverse of the projection used by getEast and getNorth
+            double Δφ = north / GeoConsts.EARTH_RADIUS;
+            double Δλ = east / ((cosLat - sinLat * Δφ / 2) * GeoConsts.EARTH_RADIUS);
+
+            result.setPostionRadians(lat + Δφ, normalizeLongitude(lon + Δλ));
+            return result;
+        }
+
+        result.setPostionRadians(lat, lon);
+
+        return GeoTools.movePosition(result, Math.toDegrees(Math.atan2(east, north)), Math.sqrt(east * east + north * north));
+    }
+
+    /**
+     * Normalizes a longitude difference to the range -π to π
+     *
+     * @param lon Longitude in radians
+     * @return Normalized longitude in radians
+     */
+    static double normalizeLongitude(double lon) {
+        if (lon >= -Math.PI && lon < Math.PI) {
+            return lon;
+        }
+
+        lon = (lon + Math.PI) % (2 * Math.PI);
+
+        return (lon < 0 ? lon + 2 * Math.PI : lon) - Math.PI;
+    }
+}
@@ -4,6 +4,9 @@ package ar.com.shipcommand.physics.magnitudes;
  * Represents the velocity of an object
  */
 public class Speed {
+    /**
+     * Speed in meters per second
+     */
     private double current;
 
     /**
@@ -19,7 +22,7 @@ public class Speed {
      * @param kmh current speed in kilometers per hour
      */
     public Speed(double kmh) {
-        current = kmh;
+        setKilometersPerHour(kmh);
     }
 
     /**
@@ -51,7 +54,7 @@ public class Speed {
      * @return speed in kilometers per hour
      */
     public double inKilometersPerHour() {
-        return current;
+        return (current / 1000) * 3600;
     }
 
     /**
@@ -60,7 +63,7 @@ public class Speed {
      * @param kmh speed in kilometers per hour
      */
     public void setKilometersPerHour(double kmh) {
-        current = kmh;
+        current = (kmh * 1000) / 3600;
     }
 
     /**
@@ -69,7 +72,7 @@ public class Speed {
      * @return Speed in meters per second
      */
     public double inMetersPerSecond() {
-        return (current * 1000) / 3600;
+        return current;
     }
 
     /**
@@ -78,7 +81,7 @@ public class Speed {
      * @param ms Speed in meters per second
      */
     public void setMetersPerSecond(double ms) {
-        current = (ms / 1000) * 3600;
+        current = ms;
     }
 
     /**
@@ -87,7 +90,7 @@ public class Speed {
      * @return Speed in knots
      */
     public double inKnots() {
-        return current / 1.852;
+        return inKilometersPerHour() / 1.852;
     }
 
     /**
@@ -96,7 +99,7 @@ public class Speed {
      * @param kt Speed in knots
      */
     public void setKnots(double kt) {
-        current = kt * 1.852;
+        setKilometersPerHour(kt * 1.852);
     }
 
     /**
@@ -105,7 +108,7 @@ public class Speed {
      * @return Speed in feet per minute
      */
     public double inFeetPerMinute() {
-        return current * ((3.281 * 1000) / 60);
+        return inKilometersPerHour() * ((3.281 * 1000) / 60);
     }
 
     /**
@@ -114,6 +117,6 @@ public class Speed {
      * @param fpm Speed in feet per minute
      */
     public void setFeetPerMinute(double fpm) {
-        current = fpm / ((3.281 * 1000) / 60);
+        setKilometersPerHour(fpm / ((3.281 * 1000) / 60));
     }
 }
@@ -0,0 +1,123 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.GameLoop;
+import ar.com.shipcommand.physics.AccelProfile;
+import ar.com.shipcommand.physics.DragProfile;
+import ar.com.shipcommand.physics.TurnProfile;
+import ar.com.shipcommand.physics.geo.Geo2DPosition;
+import ar.com.shipcommand.physics.magnitudes.Distance;
+import ar.com.shipcommand.physics.magnitudes.Speed;
+import ar.com.shipcommand.physics.magnitudes.SpeedUnits;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Checks that stepping platforms doesn't allocate memory.
+ *
+ * A fleet of maneuvering platforms with an area of interest set is stepped until the JIT has compiled the time
+ * step, and then the bytes allocated by the thread while stepping them again are measured. The check fails, with
+ * exit status 1, if more than ALLOWED_BYTES are allocated, a small margin for the allocations done by the JIT and
+ * the profiler themselves. Run it with:
+ *
+ * <pre>
+ * java -cp [classes] ar.com.shipcommand.world.AllocationCheck [platforms] [steps]
+ * </pre>
+ */
+public class AllocationCheck {
+    /**
+     * Bytes that can be allocated during the measured steps without failing the check
+     */
+    private static long ALLOWED_BYTES = 1024;
+
+    /**
+     * Runs the check
+     *
+     * @param args Number of platforms and number of measured steps, 1000 of each by default
+     */
+    public static void main(String args[]) {
+        int platforms = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        AreaOfInterest.setCurrent(new AreaOfInterest(new Geo2DPosition(-38, -57), new Distance(50000)));
+
+        ArrayList<Platform> fleet = createFleet(platforms);
+        double dt = GameLoop.getFrameTime();
+
+        // Warm up so the measured steps run compiled code
+        step(fleet, steps * 10, dt);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        step(fleet, steps, dt);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("%d entity steps allocated %d bytes (%.6f bytes per entity step)\n",
+                (long) platforms * steps, allocated, allocated / ((double) platforms * steps));
+
+        if (allocated > ALLOWED_BYTES) {
+            System.out.println("FAILED: the time step allocates memory");
+            System.exit(1);
+        }
+
+        System.out.println("OK");
+    }
+
+    /**
+     * Creates platforms spread around the area of interest, accelerating and turning
+     *
+     * @param count Number of platforms
+     * @return Created platforms
+     */
+    private static ArrayList<Platform> createFleet(int count) {
+        AccelProfile accel = new AccelProfile();
+        DragProfile drag = new DragProfile();
+        TurnProfile turn = new TurnProfile();
+        TurnProfile dive = new TurnProfile();
+
+        for (int i = 0; i <= 6; i++) {
+            Speed speed = new Speed(i * 5, SpeedUnits.Knots);
+
+            accel.add(speed, new Speed(0.5 - i * 0.05, SpeedUnits.Knots));
+            drag.add(speed, new Speed(0.1 + i * 0.05, SpeedUnits.Knots));
+            turn.add(speed, 30 + i * 20);
+            dive.add(speed, 10 + i * 5);
+        }
+
+        PlatformClass platformClass = new PlatformClass("Frigate", accel, drag, turn, dive, new ArrayList<>());
+        ArrayList<Platform> fleet = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Platform platform = new CatalogPlatform("Frigate " + i, platformClass);
+
+            platform.setPosition(-38 + (i % 40) * 0.05, -57 + (i / 40) * 0.05, 0);
+            platform.setCourse((i * 37) % 360);
+            platform.setThrottle((i % 10 + 1) / 10.0);
+            platform.setRudder((i % 5 - 2) / 4.0);
+
+            fleet.add(platform);
+        }
+
+        return fleet;
+    }
+
+    /**
+     * Steps every platform of the fleet, including the level of detail check done by the scheduler
+     *
+     * @param fleet Platforms to step
+     * @param steps Number of steps
+     * @param dt Duration of each step in seconds
+     */
+    private static void step(ArrayList<Platform> fleet, int steps, double dt) {
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < fleet.size(); i++) {
+                Platform platform = fleet.get(i);
+
+                platform.timeStep(dt);
+                platform.getUpdateTier();
+            }
+        }
+    }
+}
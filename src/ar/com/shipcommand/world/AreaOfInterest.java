@@ -0,0 +1,93 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.UpdateTier;
+import ar.com.shipcommand.physics.geo.Geo2DPosition;
+import ar.com.shipcommand.physics.geo.GeoTools;
+import ar.com.shipcommand.physics.magnitudes.Distance;
+
+/**
+ * Area of the world that is being watched, used to choose the level of detail of the sim objects.
+ *
+ * Objects inside the area are updated at full rate while maneuvering, the further away and the steadier they are the
+ * less often they are updated. Areas are immutable, changing the watched area is done by setting a new one, so sim
+ * objects can read it while being stepped concurrently. When no area is set every object is updated at full rate.
+ */
+public class AreaOfInterest {
+    /**
+     * Distance to the area, relative to its radius, beyond which objects are considered far
+     */
+    private static double FAR_RATIO = 4;
+
+    private static volatile AreaOfInterest current = null;
+
+    private Geo2DPosition center;
+    private double radius;
+
+    /**
+     * Creates a new area of interest
+     *
+     * @param center Center of the area
+     * @param radius Radius of the area
+     */
+    public AreaOfInterest(Geo2DPosition center, Distance radius) {
+        this.center = center.clone();
+        this.radius = radius.inMeters();
+    }
+
+    /**
+     * Returns the area currently being watched
+     *
+     * @return Area of interest, null if level of detail is disabled
+     */
+    public static AreaOfInterest getCurrent() {
+        return current;
+    }
+
+    /**
+     * Sets the area currently being watched
+     *
+     * @param area Area of interest, null to update all objects at full rate
+     */
+    public static void setCurrent(AreaOfInterest area) {
+        current = area;
+    }
+
+    /**
+     * Returns the center of the area
+     *
+     * @return Copy of the center position
+     */
+    public Geo2DPosition getCenter() {
+        return center.clone();
+    }
+
+    /**
+     * Returns the radius of the area
+     *
+     * @return Radius of the area
+     */
+    public Distance getRadius() {
+        return new Distance(radius);
+    }
+
+    /**
+     * Returns the tier in which an object must be updated
+     *
+     * @param position Position of the object
+     * @param maneuvering True if the object is changing its speed, course or dive angle
+     * @return Update tier
+     */
+    public UpdateTier getTier(Geo2DPosition position, boolean maneuvering) {
+        double distance = GeoTools.getDistanceMeters(center, position);
+
+        if (distance <= radius) {
+            return maneuvering ? UpdateTier.Full : UpdateTier.Medium;
+        }
+
+        if (distance <= radius * FAR_RATIO) {
+            return maneuvering ? UpdateTier.Medium : UpdateTier.Low;
+        }
+
+        return UpdateTier.Low;
+    }
+}
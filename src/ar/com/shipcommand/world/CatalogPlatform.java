@@ -0,0 +1,27 @@
+package ar.com.shipcommand.world;
+
+/**
+ * Platform whose behaviour is fully described by a platform class, like the ones loaded by a platform catalog.
+ */
+public class CatalogPlatform extends Platform {
+    /**
+     * Creates a new platform of the given class
+     *
+     * @param name Name of the platform
+     * @param platformClass Class of the platform
+     */
+    public CatalogPlatform(String name, PlatformClass platformClass) {
+        super(name, platformClass);
+    }
+
+    /**
+     * Creates a new platform of the given class
+     *
+     * @param name Name of the platform
+     * @param platformClass Class of the platform
+     * @param store Store where the platform's state is kept
+     */
+    public CatalogPlatform(String name, PlatformClass platformClass, KinematicStore store) {
+        super(name, platformClass, store);
+    }
+}
@@ -0,0 +1,492 @@
+package ar.com.shipcommand.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and restores the state of the sim objects to memory mapped checkpoint files.
+ *
+ * Each checkpoint is a file on the checkpoint directory holding a header, a table with the names of the object
+ * classes, a record for each object and the ids of the removed objects. A record holds the object's id, the index
+ * of its class name on the table, the id and the index of the name of its variant, like the platform class of a
+ * platform, and the state written by the object. The variant is given to the factory when the object must be
+ * created on a restore. A full checkpoint holds all the objects, an
+ * incremental one only the objects that changed or were removed since the previous checkpoint, which is kept as
+ * its parent. Restoring applies the chain of checkpoints from the last full one.
+ *
+ * Restoring after saving starts a new branch, the following checkpoints have the restored one as their parent so
+ * what-if runs can be started from any checkpoint without losing the others, and each branch only writes the
+ * objects that changed since the checkpoint it was started from.
+ *
+ * The manager must be used from the physics thread, between steps.
+ */
+public class CheckpointManager {
+    static int MAGIC = 0x53434350;
+    static int VERSION = 2;
+
+    /**
+     * Number of checkpoints between full checkpoints when not specified
+     */
+    private static int DEFAULT_FULL_INTERVAL = 10;
+
+    /**
+     * Size in bytes of the file header
+     */
+    private static int HEADER_SIZE = 4 + 4 + 1 + 8 + 8 + 8 + 8 + 4 + 4 + 4;
+
+    /**
+     * Size in bytes of the fixed part of a record: id, class index, variant id, variant name index and state length
+     */
+    private static int RECORD_HEADER_SIZE = 8 + 4 + 4 + 4 + 4;
+
+    /**
+     * Offsets of the fields of a record
+     */
+    private static int RECORD_TYPE = 8;
+    private static int RECORD_VARIANT_ID = 12;
+    private static int RECORD_VARIANT_NAME = 16;
+    private static int RECORD_SIZE = 20;
+
+    private File directory;
+    private int fullInterval;
+
+    private long lastSequence;
+    private long parent = -1;
+    private int sinceFull = 0;
+
+    /**
+     * Hash of the state written on the last checkpoint, by object id
+     */
+    private HashMap<Long, long[]> written = new HashMap<>();
+    private long generation = 0;
+
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private ByteBuffer records = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     * Creates a new checkpoint manager
+     *
+     * @param directory Directory where the checkpoint files are kept, it's created if it doesn't exist
+     */
+    public CheckpointManager(String directory) throws IOException {
+        this(directory, DEFAULT_FULL_INTERVAL);
+    }
+
+    /**
+     * Creates a new checkpoint manager
+     *
+     * @param directory Directory where the checkpoint files are kept, it's created if it doesn't exist
+     * @param fullInterval Number of checkpoints between full checkpoints
+     */
+    public CheckpointManager(String directory, int fullInterval) throws IOException {
+        this.directory = new File(directory);
+        this.fullInterval = Math.max(1, fullInterval);
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Can't create the checkpoint directory: " + directory);
+        }
+
+        // Continue the numbering of the existing checkpoints
+        lastSequence = 0;
+
+        String[] names = this.directory.list();
+
+        if (names != null) {
+            for (String name : names) {
+                long sequence = parseSequence(name);
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the last checkpoint written on the directory
+     *
+     * @return Checkpoint number, zero if there are none
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Saves a checkpoint with the current state of the given objects
+     *
+     * @param objects All the objects in the simulation
+     * @param tick Current physics step number
+     * @param time Current simulated time in seconds
+     * @return Number of the checkpoint written
+     */
+    public long save(Collection<? extends SimObject> objects, long tick, double time) throws IOException {
+        boolean full = parent < 0 || sinceFull >= fullInterval - 1;
+
+        if (full) {
+            written.clear();
+        }
+
+        generation++;
+
+        HashMap<String, Integer> types = new HashMap<>();
+        List<String> typeNames = new ArrayList<>();
+        int recordCount = 0;
+
+        records.clear();
+
+        for (SimObject object : objects) {
+            int size = object.getCheckpointSize();
+
+            // Write the state to the scratch buffer and compare it with the last one written
+            if (scratch.capacity() < size) {
+                scratch = ByteBuffer.allocate(size * 2);
+            }
+
+            scratch.clear();
+            object.writeCheckpoint(scratch);
+            scratch.flip();
+
+            long hash = hash(scratch);
+            long[] entry = written.get(object.getId());
+
+            if (entry == null) {
+                entry = new long[2];
+                written.put(object.getId(), entry);
+            } else if (entry[0] == hash && entry[1] == generation - 1) {
+                entry[1] = generation;
+                continue;
+            }
+
+            entry[0] = hash;
+            entry[1] = generation;
+
+            String variant = object.getCheckpointVariantName();
+
+            ensureRecords(RECORD_HEADER_SIZE + size);
+
+            records.putLong(object.getId());
+            records.putInt(nameIndex(object.getClass().getName(), types, typeNames));
+            records.putInt(object.getCheckpointVariantId());
+            records.putInt(variant != null ? nameIndex(variant, types, typeNames) : -1);
+            records.putInt(size);
+            records.put(scratch);
+
+            recordCount++;
+        }
+
+        // Objects written before but not present now were removed
+        List<Long> removed = new ArrayList<>();
+        Iterator<Map.Entry<Long, long[]>> entries = written.entrySet().iterator();
+
+        while (entries.hasNext()) {
+            Map.Entry<Long, long[]> entry = entries.next();
+
+            if (entry.getValue()[1] != generation) {
+                removed.add(entry.getKey());
+                entries.remove();
+            }
+        }
+
+        List<byte[]> encodedNames = new ArrayList<>();
+        int namesSize = 0;
+
+        for (String name : typeNames) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            encodedNames.add(encoded);
+            namesSize += 2 + encoded.length;
+        }
+
+        records.flip();
+
+        long sequence = lastSequence + 1;
+        long fileSize = HEADER_SIZE + namesSize + records.remaining() + removed.size() * 8L;
+
+        try (FileChannel channel = FileChannel.open(getFile(sequence).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.put((byte) (full ? 1 : 0));
+            buffer.putLong(sequence);
+            buffer.putLong(full ? -1 : parent);
+            buffer.putLong(tick);
+            buffer.putDouble(time);
+            buffer.putInt(typeNames.size());
+            buffer.putInt(recordCount);
+            buffer.putInt(removed.size());
+
+            for (byte[] encoded : encodedNames) {
+                buffer.putShort((short) encoded.length);
+                buffer.put(encoded);
+            }
+
+            buffer.put(records);
+
+            for (Long id : removed) {
+                buffer.putLong(id);
+            }
+
+            buffer.force();
+        }
+
+        lastSequence = sequence;
+        parent = sequence;
+        sinceFull = full ? 0 : sinceFull + 1;
+
+        return sequence;
+    }
+
+    /**
+     * Restores the state of the objects saved on a checkpoint.
+     *
+     * Objects in the checkpoint are matched by id with the given ones. Objects missing from the simulation are
+     * created with the factory and objects that didn't exist on the checkpoint are returned as removed, the caller
+     * must add and remove them from the game.
+     *
+     * @param sequence Number of the checkpoint to restore
+     * @param objects All the objects in the simulation
+     * @param factory Factory used to create the missing objects, null to skip them
+     * @param created List where the created objects are added
+     * @param removed List where the objects not present on the checkpoint are added
+     * @return Physics step number of the checkpoint
+     */
+    public long restore(long sequence, Collection<? extends SimObject> objects, ICheckpointFactory factory,
+                        List<SimObject> created, List<SimObject> removed) throws IOException {
+        // Find the chain of checkpoints from the last full one
+        List<MappedByteBuffer> chain = new ArrayList<>();
+        long current = sequence;
+
+        while (current >= 0) {
+            MappedByteBuffer buffer = map(current);
+            chain.add(0, buffer);
+
+            boolean full = buffer.get(8) == 1;
+            current = full ? -1 : buffer.getLong(17);
+        }
+
+        // Location of the last record of each object, as chain index, record offset and class name
+        HashMap<Long, long[]> locations = new HashMap<>();
+        List<String[]> chainTypes = new ArrayList<>();
+        long tick = 0;
+
+        for (int c = 0; c < chain.size(); c++) {
+            MappedByteBuffer buffer = chain.get(c);
+
+            buffer.position(25);
+            tick = buffer.getLong();
+            buffer.getDouble();
+
+            int typeCount = buffer.getInt();
+            int recordCount = buffer.getInt();
+            int removedCount = buffer.getInt();
+
+            String[] types = new String[typeCount];
+
+            for (int i = 0; i < typeCount; i++) {
+                byte[] encoded = new byte[buffer.getShort()];
+                buffer.get(encoded);
+                types[i] = new String(encoded, StandardCharsets.UTF_8);
+            }
+
+            chainTypes.add(types);
+
+            for (int i = 0; i < recordCount; i++) {
+                int offset = buffer.position();
+                long id = buffer.getLong();
+                buffer.getInt();
+                buffer.getInt();
+                buffer.getInt();
+                int size = buffer.getInt();
+
+                locations.put(id, new long[] { c, offset });
+                buffer.position(buffer.position() + size);
+            }
+
+            for (int i = 0; i < removedCount; i++) {
+                locations.remove(buffer.getLong());
+            }
+        }
+
+        // Start from the state of the restored checkpoint, so the next one only holds what changes from it. Objects
+        // that are not restored are reported as removed by the next checkpoint
+        written.clear();
+        generation++;
+
+        for (Map.Entry<Long, long[]> entry : locations.entrySet()) {
+            long[] location = entry.getValue();
+            MappedByteBuffer buffer = chain.get((int) location[0]);
+            int offset = (int) location[1];
+
+            ByteBuffer state = buffer.duplicate();
+            state.limit(offset + RECORD_HEADER_SIZE + buffer.getInt(offset + RECORD_SIZE));
+            state.position(offset + RECORD_HEADER_SIZE);
+
+            written.put(entry.getKey(), new long[] { hash(state), generation });
+        }
+
+        for (SimObject object : objects) {
+            long[] location = locations.remove(object.getId());
+
+            if (location == null) {
+                removed.add(object);
+            } else {
+                read(object, chain.get((int) location[0]), (int) location[1]);
+            }
+        }
+
+        if (factory != null) {
+            for (Map.Entry<Long, long[]> entry : locations.entrySet()) {
+                long[] location = entry.getValue();
+                MappedByteBuffer buffer = chain.get((int) location[0]);
+
+                String[] types = chainTypes.get((int) location[0]);
+                int offset = (int) location[1];
+
+                String type = types[buffer.getInt(offset + RECORD_TYPE)];
+                int variantIndex = buffer.getInt(offset + RECORD_VARIANT_NAME);
+                String variant = variantIndex >= 0 ? types[variantIndex] : null;
+
+                SimObject object = factory.create(type, buffer.getInt(offset + RECORD_VARIANT_ID), variant);
+
+                if (object != null) {
+                    object.setId(entry.getKey());
+                    read(object, buffer, (int) location[1]);
+                    created.add(object);
+                }
+            }
+        }
+
+        // The next checkpoint starts a new branch from the restored one
+        parent = sequence;
+        sinceFull = chain.size() - 1;
+
+        return tick;
+    }
+
+    /**
+     * Reads an object's state from a record
+     *
+     * @param object Object to restore
+     * @param buffer Checkpoint holding the record
+     * @param offset Offset of the record
+     */
+    private void read(SimObject object, MappedByteBuffer buffer, int offset) throws IOException {
+        int size = buffer.getInt(offset + RECORD_SIZE);
+
+        if (size != object.getCheckpointSize()) {
+            throw new IOException("Checkpoint record of object " + object.getId() + " doesn't match its class");
+        }
+
+        buffer.position(offset + RECORD_HEADER_SIZE);
+        object.readCheckpoint(buffer);
+    }
+
+    /**
+     * Maps a checkpoint file and checks its header
+     *
+     * @param sequence Checkpoint number
+     * @return Buffer with the file contents
+     */
+    private MappedByteBuffer map(long sequence) throws IOException {
+        File file = getFile(sequence);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a supported checkpoint: " + file);
+            }
+
+            return buffer;
+        }
+    }
+
+    /**
+     * Returns the index of a name on the names table of a checkpoint, adding it if needed
+     *
+     * @param name Name to look for
+     * @param indexes Index of each name already added
+     * @param names Names table
+     * @return Index of the name
+     */
+    private static int nameIndex(String name, HashMap<String, Integer> indexes, List<String> names) {
+        Integer index = indexes.get(name);
+
+        if (index == null) {
+            index = names.size();
+            indexes.put(name, index);
+            names.add(name);
+        }
+
+        return index;
+    }
+
+    /**
+     * Grows the records buffer if needed
+     *
+     * @param size Number of bytes to be written
+     */
+    private void ensureRecords(int size) {
+        if (records.remaining() < size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(records.capacity() * 2, records.position() + size));
+
+            records.flip();
+            bigger.put(records);
+            records = bigger;
+        }
+    }
+
+    /**
+     * Returns the file of a checkpoint
+     *
+     * @param sequence Checkpoint number
+     * @return Checkpoint file
+     */
+    private File getFile(long sequence) {
+        return new File(directory, String.format("checkpoint-%08d.bin", sequence));
+    }
+
+    /**
+     * Returns the checkpoint number of a file name
+     *
+     * @param name File name
+     * @return Checkpoint number, zero if it's not a checkpoint file
+     */
+    private static long parseSequence(String name) {
+        if (!name.startsWith("checkpoint-") || !name.endsWith(".bin")) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(name.substring(11, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Computes a 64 bit hash of the remaining bytes of a buffer without changing its position
+     *
+     * @param buffer Buffer to hash
+     * @return Hash value
+     */
+    private static long hash(ByteBuffer buffer) {
+        long hash = 0xCBF29CE484222325L;
+
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            hash ^= buffer.get(i);
+            hash *= 0x100000001B3L;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,434 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.ITimedSystem;
+import ar.com.shipcommand.physics.geo.GeoTools;
+import ar.com.shipcommand.physics.magnitudes.Distance;
+import ar.com.shipcommand.world.sensors.Contact;
+import ar.com.shipcommand.world.sensors.IContactListener;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Predicts the closest point of approach (CPA) of pairs of sim objects.
+ *
+ * The relative position of each pair is taken on the plane tangent to the observer and both objects are assumed
+ * to keep their course, horizontal speed and vertical speed. The prediction of a pair is kept until any of the two
+ * objects changes its course, speed or dive angle, or until it's older than the maximum age, so steady objects cost
+ * a few comparisons per tick. Pairs predicted to pass within the threshold distance are flagged as threats.
+ *
+ * Pairs can be added by hand or the engine can be registered as listener of a detection engine so a pair is kept
+ * for each contact. The engine must be added to the game loop as a system after the detection engine. Pairs must be
+ * added and removed from the physics thread.
+ */
+public class CpaEngine implements ITimedSystem, IContactListener {
+    /**
+     * Default distance under which closing pairs are flagged, in meters
+     */
+    private static double DEFAULT_THRESHOLD = 1852;
+    /**
+     * Default seconds after which a prediction is computed again even if the objects didn't maneuver
+     */
+    private static double DEFAULT_MAX_AGE = 60;
+
+    private double threshold = DEFAULT_THRESHOLD;
+    private double horizon = Double.POSITIVE_INFINITY;
+    private double maxAge = DEFAULT_MAX_AGE;
+
+    private List<CpaResult> pairs = new ArrayList<>();
+    private IdentityHashMap<SimObject, IdentityHashMap<SimObject, CpaResult>> byObserver = new IdentityHashMap<>();
+
+    private IdentityHashMap<SimObject, Party> parties = new IdentityHashMap<>();
+    private List<Party> partyList = new ArrayList<>();
+
+    private double time = 0;
+
+    /**
+     * Object on one or more pairs and the motion values last seen on it
+     */
+    static class Party {
+        SimObject object;
+        int index;
+        int pairs;
+
+        double course;
+        double speed;
+        double diveAngle;
+        long version;
+
+        Party(SimObject object) {
+            this.object = object;
+        }
+    }
+
+    /**
+     * Returns the distance under which closing pairs are flagged
+     *
+     * @return Threshold in meters
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the distance under which closing pairs are flagged
+     *
+     * @param threshold Threshold distance
+     */
+    public void setThreshold(Distance threshold) {
+        this.threshold = threshold.inMeters();
+    }
+
+    /**
+     * Returns the maximum time to the CPA for a pair to be flagged
+     *
+     * @return Horizon in seconds
+     */
+    public double getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Sets the maximum time to the CPA for a pair to be flagged
+     *
+     * @param horizon Horizon in seconds, infinite to flag all pairs regardless of the time
+     */
+    public void setHorizon(double horizon) {
+        this.horizon = horizon;
+    }
+
+    /**
+     * Returns the time after which a prediction is computed again even if the objects didn't maneuver
+     *
+     * @return Maximum age in seconds
+     */
+    public double getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the time after which a prediction is computed again even if the objects didn't maneuver, that corrects
+     * the error of the flat approximation on long approaches
+     *
+     * @param maxAge Maximum age in seconds
+     */
+    public void setMaxAge(double maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns the number of pairs evaluated
+     *
+     * @return Number of pairs
+     */
+    public int size() {
+        return pairs.size();
+    }
+
+    /**
+     * Adds a pair to evaluate, its result is computed on the next step
+     *
+     * @param observer Object from which the approach is evaluated
+     * @param target Object approaching
+     * @return Result of the pair
+     */
+    public CpaResult addPair(SimObject observer, SimObject target) {
+        IdentityHashMap<SimObject, CpaResult> targets = byObserver.get(observer);
+
+        if (targets == null) {
+            targets = new IdentityHashMap<>();
+            byObserver.put(observer, targets);
+        }
+
+        CpaResult result = targets.get(target);
+
+        if (result != null) {
+            return result;
+        }
+
+        result = new CpaResult(observer, target);
+        result.index = pairs.size();
+
+        targets.put(target, result);
+        pairs.add(result);
+
+        result.observerParty = addParty(observer);
+        result.targetParty = addParty(target);
+
+        return result;
+    }
+
+    /**
+     * Removes a pair
+     *
+     * @param observer Object from which the approach is evaluated
+     * @param target Object approaching
+     */
+    public void removePair(SimObject observer, SimObject target) {
+        IdentityHashMap<SimObject, CpaResult> targets = byObserver.get(observer);
+
+        if (targets == null) {
+            return;
+        }
+
+        CpaResult result = targets.remove(target);
+
+        if (result == null) {
+            return;
+        }
+
+        if (targets.isEmpty()) {
+            byObserver.remove(observer);
+        }
+
+        // Move the last pair to the removed one
+        CpaResult last = pairs.remove(pairs.size() - 1);
+
+        if (last != result) {
+            last.index = result.index;
+            pairs.set(result.index, last);
+        }
+
+        removeParty(observer);
+        removeParty(target);
+    }
+
+    /**
+     * Returns the result of a pair
+     *
+     * @param observer Object from which the approach is evaluated
+     * @param target Object approaching
+     * @return Result of the pair, null if the pair is not evaluated
+     */
+    public CpaResult getResult(SimObject observer, SimObject target) {
+        IdentityHashMap<SimObject, CpaResult> targets = byObserver.get(observer);
+
+        return targets != null ? targets.get(target) : null;
+    }
+
+    /**
+     * Finds the pairs flagged as threats
+     *
+     * @param result List where the flagged pairs are added
+     */
+    public void getThreats(List<CpaResult> result) {
+        for (int i = 0; i < pairs.size(); i++) {
+            CpaResult pair = pairs.get(i);
+
+            if (pair.threat) {
+                result.add(pair);
+            }
+        }
+    }
+
+    /**
+     * Adds a pair for the new contact
+     *
+     * @param observer Platform holding the contact
+     * @param contact New contact
+     */
+    public void contactAdded(Platform observer, Contact contact) {
+        addPair(observer, contact.getTarget());
+    }
+
+    /**
+     * Pairs are updated when the engine is stepped
+     *
+     * @param observer Platform holding the contact
+     * @param contact Updated contact
+     */
+    public void contactUpdated(Platform observer, Contact contact) {
+    }
+
+    /**
+     * Removes the pair of the dropped contact
+     *
+     * @param observer Platform that held the contact
+     * @param contact Dropped contact
+     */
+    public void contactDropped(Platform observer, Contact contact) {
+        removePair(observer, contact.getTarget());
+    }
+
+    /**
+     * Sets the engine's clock, called by the game loop before the engine is stepped
+     *
+     * @param time Simulated time at the start of the step in seconds
+     */
+    public void setTime(double time) {
+        this.time = time;
+    }
+
+    /**
+     * Returns the time at which a prediction gets too old or a pair starts or stops being a threat
+     *
+     * @return Simulated time in seconds, infinite if there are no pairs
+     */
+    public double getNextTime() {
+        double next = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < pairs.size(); i++) {
+            CpaResult pair = pairs.get(i);
+
+            // Pairs not computed yet are due now
+            if (pair.observerVersion != pair.observerParty.version || pair.targetVersion != pair.targetParty.version) {
+                return time;
+            }
+
+            next = Math.min(next, pair.computedAt + maxAge);
+
+            if (pair.closing) {
+                if (pair.cpaTime - horizon > time) {
+                    next = Math.min(next, pair.cpaTime - horizon);
+                }
+
+                if (pair.cpaTime >= time) {
+                    next = Math.min(next, pair.cpaTime);
+                }
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * Computes the stale predictions and flags the threats
+     *
+     * @param dt Time passed since last update
+     */
+    public void timeStep(double dt) {
+        time += dt;
+
+        // Detect the objects that maneuvered since the last step
+        for (int i = 0; i < partyList.size(); i++) {
+            Party party = partyList.get(i);
+            SimObject object = party.object;
+            KinematicStore store = object.getStore();
+            int row = object.row;
+
+            if (store.course[row] != party.course || store.speed[row] != party.speed || store.diveAngle[row] != party.diveAngle) {
+                party.course = store.course[row];
+                party.speed = store.speed[row];
+                party.diveAngle = store.diveAngle[row];
+                party.version++;
+            }
+        }
+
+        for (int i = 0; i < pairs.size(); i++) {
+            CpaResult pair = pairs.get(i);
+
+            long observerVersion = pair.observerParty.version;
+            long targetVersion = pair.targetParty.version;
+
+            if (observerVersion != pair.observerVersion || targetVersion != pair.targetVersion || time - pair.computedAt >= maxAge) {
+                compute(pair);
+
+                pair.observerVersion = observerVersion;
+                pair.targetVersion = targetVersion;
+                pair.computedAt = time;
+            }
+
+            pair.timeToCpa = pair.closing ? Math.max(0, pair.cpaTime - time) : 0;
+            pair.threat = pair.closing && pair.cpaTime >= time && pair.timeToCpa <= horizon && pair.distance <= threshold;
+        }
+    }
+
+    /**
+     * Predicts the closest point of approach of a pair from the current state of both objects
+     *
+     * @param pair Pair to compute
+     */
+    private void compute(CpaResult pair) {
+        SimObject a = pair.observer;
+        SimObject b = pair.target;
+        KinematicStore sa = a.getStore();
+        KinematicStore sb = b.getStore();
+        int ra = a.row;
+        int rb = b.row;
+
+        // Relative position on the plane tangent to the observer, x east, y north, z up
+        double range = GeoTools.getDistanceMetersFast(sa.lat[ra], sa.lon[ra], sb.lat[rb], sb.lon[rb]);
+        double bearing = Math.toRadians(GeoTools.getBearingFast(sa.lat[ra], sa.lon[ra], sb.lat[rb], sb.lon[rb]));
+
+        double x = range * Math.sin(bearing);
+        double y = range * Math.cos(bearing);
+        double z = sb.altitude[rb] - sa.altitude[ra];
+
+        // Relative velocity
+        double ha = sa.speed[ra] * Math.cos(sa.diveAngle[ra]);
+        double hb = sb.speed[rb] * Math.cos(sb.diveAngle[rb]);
+
+        double vx = hb * Math.sin(sb.course[rb]) - ha * Math.sin(sa.course[ra]);
+        double vy = hb * Math.cos(sb.course[rb]) - ha * Math.cos(sa.course[ra]);
+        double vz = sb.speed[rb] * Math.sin(sb.diveAngle[rb]) - sa.speed[ra] * Math.sin(sa.diveAngle[ra]);
+
+        double v2 = vx * vx + vy * vy + vz * vz;
+        double closing = -(x * vx + y * vy + z * vz);
+
+        if (v2 == 0 || closing <= 0) {
+            // Not getting closer, the current distance is the closest one
+            pair.closing = false;
+            pair.cpaTime = time;
+            pair.distance = Math.sqrt(x * x + y * y + z * z);
+            return;
+        }
+
+        double t = closing / v2;
+
+        double cx = x + vx * t;
+        double cy = y + vy * t;
+        double cz = z + vz * t;
+
+        pair.closing = true;
+        pair.cpaTime = time + t;
+        pair.distance = Math.sqrt(cx * cx + cy * cy + cz * cz);
+    }
+
+    /**
+     * Counts a new pair of an object
+     *
+     * @param object Object on the pair
+     * @return Party of the object
+     */
+    private Party addParty(SimObject object) {
+        Party party = parties.get(object);
+
+        if (party == null) {
+            party = new Party(object);
+            party.index = partyList.size();
+
+            // Force the comparison to see a change
+            party.course = Double.NaN;
+
+            parties.put(object, party);
+            partyList.add(party);
+        }
+
+        party.pairs++;
+
+        return party;
+    }
+
+    /**
+     * Discounts a pair of an object, removing it when it's on no pair
+     *
+     * @param object Object on the pair
+     */
+    private void removeParty(SimObject object) {
+        Party party = parties.get(object);
+
+        if (party == null || --party.pairs > 0) {
+            return;
+        }
+
+        parties.remove(object);
+
+        Party last = partyList.remove(partyList.size() - 1);
+
+        if (last != party) {
+            last.index = party.index;
+            partyList.set(party.index, last);
+        }
+    }
+}
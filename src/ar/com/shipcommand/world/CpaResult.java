@@ -0,0 +1,95 @@
+package ar.com.shipcommand.world;
+
+/**
+ * Closest point of approach predicted for a pair of sim objects.
+ *
+ * Results are owned by the CPA engine and updated when it's stepped, the values must be read from the physics
+ * thread.
+ */
+public class CpaResult {
+    SimObject observer;
+    SimObject target;
+
+    CpaEngine.Party observerParty;
+    CpaEngine.Party targetParty;
+
+    /**
+     * Index of the result on the engine's list of pairs
+     */
+    int index;
+
+    long observerVersion = -1;
+    long targetVersion = -1;
+    double computedAt;
+
+    double distance;
+    double cpaTime;
+    double timeToCpa;
+    boolean closing;
+    boolean threat;
+
+    /**
+     * Creates a new result for a pair
+     *
+     * @param observer Object from which the approach is evaluated
+     * @param target Object approaching
+     */
+    CpaResult(SimObject observer, SimObject target) {
+        this.observer = observer;
+        this.target = target;
+    }
+
+    /**
+     * Returns the object from which the approach is evaluated
+     *
+     * @return Observer object
+     */
+    public SimObject getObserver() {
+        return observer;
+    }
+
+    /**
+     * Returns the object approaching
+     *
+     * @return Target object
+     */
+    public SimObject getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the distance between the objects at the closest point of approach
+     *
+     * @return Distance in meters
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the time left until the closest point of approach
+     *
+     * @return Seconds to the CPA, zero if the objects are not closing
+     */
+    public double getTimeToCpa() {
+        return timeToCpa;
+    }
+
+    /**
+     * Returns if the objects are getting closer
+     *
+     * @return True if closing
+     */
+    public boolean isClosing() {
+        return closing;
+    }
+
+    /**
+     * Returns if the objects are closing and will pass within the engine's threshold distance
+     *
+     * @return True if the pair is flagged
+     */
+    public boolean isThreat() {
+        return threat;
+    }
+}
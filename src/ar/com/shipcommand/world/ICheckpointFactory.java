@@ -0,0 +1,27 @@
+package ar.com.shipcommand.world;
+
+/**
+ * Creates the objects found on a checkpoint that are not in the simulation when it's restored.
+ */
+public interface ICheckpointFactory {
+    /**
+     * Creates an empty object of the given type, its id and state are set from the checkpoint after it's created
+     *
+     * @param type Name of the object's class as written on the checkpoint
+     * @return New object or null if the type can't be created
+     */
+    SimObject create(String type);
+
+    /**
+     * Creates an empty object of the given type and variant, its id and state are set from the checkpoint after it's
+     * created. By default the variant is ignored
+     *
+     * @param type Name of the object's class as written on the checkpoint
+     * @param variantId Id of the object's variant, like the id of a platform's class, -1 if none
+     * @param variantName Name of the object's variant, like the name of a platform's class, null if none
+     * @return New object or null if the type can't be created
+     */
+    default SimObject create(String type, int variantId, String variantName) {
+        return create(type);
+    }
+}
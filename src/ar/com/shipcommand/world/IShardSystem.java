@@ -0,0 +1,19 @@
+package ar.com.shipcommand.world;
+
+/**
+ * System that works over the objects of each shard of a sharded world, like sensors or collision checks.
+ *
+ * Systems run on the worker thread of each shard after all the objects were moved, at that point positions are
+ * read only so a system can read the objects of its shard and the ghosts of the neighbor shards, but it must only
+ * change the objects owned by the shard it's running on. Positions must be read from the kinematic store rows,
+ * SimObject.getPosition refreshes a position object kept by the object so it's only safe on the shard's own objects.
+ */
+public interface IShardSystem {
+    /**
+     * Runs the system over a shard
+     *
+     * @param shard Shard being processed
+     * @param dt Time passed since last update
+     */
+    void step(Shard shard, double dt);
+}
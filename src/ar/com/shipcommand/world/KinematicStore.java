@@ -0,0 +1,640 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.IGameObject;
+import ar.com.shipcommand.physics.geo.FastTrig;
+import ar.com.shipcommand.physics.geo.GeoConsts;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage of the kinematic state of sim objects.
+ *
+ * Each sim object owns a row of the store and its state is kept in one primitive array per field, so advancing
+ * many objects walks a few contiguous arrays instead of several heap objects per entity. Rows are kept dense, when
+ * an object leaves the store the last row is moved to its place and the owner of that row is updated.
+ *
+ * A store in batch mode integrates all its rows at once when stepped, it must be added to the game loop as a system
+ * so it runs after the objects updated their speed, turning and diving rates. Otherwise each object integrates its
+ * own row on its time step. Rows are allocated and released by the sim objects, that must be done from the physics
+ * thread or before the game is started.
+ *
+ * All values are in SI units: angles in radians, distances in meters and rates per second.
+ */
+public class KinematicStore implements IGameObject {
+    /**
+     * Number of rows allocated when the store is created without a given capacity
+     */
+    private static int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Largest angular distance per step moved along a rhumb line, about 3 kilometers
+     */
+    private static double RHUMB_MAX_DISTANCE = 5e-4;
+
+    /**
+     * Smallest cosine of the latitude moved along a rhumb line, about 78 degrees
+     */
+    private static double RHUMB_MIN_COS_LAT = 0.2;
+
+    /**
+     * Longest step integrated at once in seconds, longer ones are split so the moves stay short
+     */
+    private static double MAX_STEP = 10;
+
+    /**
+     * Store used by the objects created without one
+     */
+    private static KinematicStore shared = new KinematicStore();
+
+    double[] lat;
+    double[] lon;
+    double[] altitude;
+    double[] course;
+    double[] diveAngle;
+    double[] speed;
+    double[] acceleration;
+    double[] turnRate;
+    double[] diveRate;
+
+    SimObject[] owners;
+
+    private int size = 0;
+    private boolean batch = false;
+    private boolean fast = false;
+
+    /**
+     * Creates a new store with the default capacity
+     */
+    public KinematicStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new store
+     *
+     * @param capacity Initial number of rows, the store grows as needed
+     */
+    public KinematicStore(int capacity) {
+        capacity = Math.max(1, capacity);
+
+        lat = new double[capacity];
+        lon = new double[capacity];
+        altitude = new double[capacity];
+        course = new double[capacity];
+        diveAngle = new double[capacity];
+        speed = new double[capacity];
+        acceleration = new double[capacity];
+        turnRate = new double[capacity];
+        diveRate = new double[capacity];
+
+        owners = new SimObject[capacity];
+    }
+
+    /**
+     * Returns the store shared by the objects created without one, it grows as objects are created and objects
+     * removed from the game loop leave it
+     *
+     * @return Shared store
+     */
+    public static KinematicStore getShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the number of rows in use
+     *
+     * @return Number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latitude of a row, for the systems reading positions without going through the objects
+     *
+     * @param row Row number
+     * @return Latitude in radians
+     */
+    public double getLat(int row) {
+        return lat[row];
+    }
+
+    /**
+     * Returns the longitude of a row, for the systems reading positions without going through the objects
+     *
+     * @param row Row number
+     * @return Longitude in radians
+     */
+    public double getLon(int row) {
+        return lon[row];
+    }
+
+    /**
+     * Returns if the store integrates all its rows when stepped
+     *
+     * @return True if in batch mode
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Sets if the store integrates all its rows when stepped, instead of each object integrating its own row
+     *
+     * @param batch True to enable batch mode
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Returns if the store integrates its rows with the fast approximations
+     *
+     * @return True if using the fast path
+     */
+    public boolean isFast() {
+        return fast;
+    }
+
+    /**
+     * Sets if the store integrates its rows with the approximated sines and cosines of integrateFast instead of the
+     * exact ones
+     *
+     * @param fast True to use the fast path
+     */
+    public void setFast(boolean fast) {
+        this.fast = fast;
+    }
+
+    /**
+     * Moves the specified object to this store
+     *
+     * @param object Object to add
+     */
+    public void add(SimObject object) {
+        object.moveTo(this);
+    }
+
+    /**
+     * Moves the specified object out of this store to a store of its own
+     *
+     * @param object Object to remove
+     */
+    public void remove(SimObject object) {
+        if (object.getStore() == this) {
+            object.moveTo(new KinematicStore(1));
+        }
+    }
+
+    /**
+     * Returns the object owning the specified row
+     *
+     * @param row Row number
+     * @return Owner of the row
+     */
+    public SimObject getOwner(int row) {
+        return owners[row];
+    }
+
+    /**
+     * Allocates a new row for the given object, all values are set to zero
+     *
+     * @param owner Object owning the row
+     * @return Row number
+     */
+    int allocate(SimObject owner) {
+        if (size == owners.length) {
+            grow(size * 2);
+        }
+
+        int row = size++;
+
+        lat[row] = 0;
+        lon[row] = 0;
+        altitude[row] = 0;
+        course[row] = 0;
+        diveAngle[row] = 0;
+        speed[row] = 0;
+        acceleration[row] = 0;
+        turnRate[row] = 0;
+        diveRate[row] = 0;
+
+        owners[row] = owner;
+
+        return row;
+    }
+
+    /**
+     * Releases the specified row moving the last row to its place
+     *
+     * @param row Row number
+     */
+    void release(int row) {
+        int last = --size;
+
+        if (row != last) {
+            copyRow(this, last, row);
+
+            owners[row] = owners[last];
+            owners[row].row = row;
+        }
+
+        owners[last] = null;
+    }
+
+    /**
+     * Copies a row from one store to another
+     *
+     * @param source Source store
+     * @param from Source row
+     * @param to Destination row on this store
+     */
+    void copyRow(KinematicStore source, int from, int to) {
+        lat[to] = source.lat[from];
+        lon[to] = source.lon[from];
+        altitude[to] = source.altitude[from];
+        course[to] = source.course[from];
+        diveAngle[to] = source.diveAngle[from];
+        speed[to] = source.speed[from];
+        acceleration[to] = source.acceleration[from];
+        turnRate[to] = source.turnRate[from];
+        diveRate[to] = source.diveRate[from];
+    }
+
+    /**
+     * Increases the capacity of the store
+     *
+     * @param capacity New number of rows
+     */
+    private void grow(int capacity) {
+        lat = Arrays.copyOf(lat, capacity);
+        lon = Arrays.copyOf(lon, capacity);
+        altitude = Arrays.copyOf(altitude, capacity);
+        course = Arrays.copyOf(course, capacity);
+        diveAngle = Arrays.copyOf(diveAngle, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        acceleration = Arrays.copyOf(acceleration, capacity);
+        turnRate = Arrays.copyOf(turnRate, capacity);
+        diveRate = Arrays.copyOf(diveRate, capacity);
+
+        owners = Arrays.copyOf(owners, capacity);
+    }
+
+    /**
+     * Integrates all rows when in batch mode
+     *
+     * @param dt Time passed since last update
+     */
+    public void timeStep(double dt) {
+        if (batch) {
+            integrate(0, size, dt);
+        }
+    }
+
+    /**
+     * Integrates the given range of rows.
+     *
+     * The speed is changed by the acceleration and the course and dive angle by their rates, all of them assumed
+     * constant during the step. The path followed is integrated in closed form around the middle of the step: with
+     * a turning rate ω the horizontal move is the chord of the arc, of length s·sin(x)/x along the mean course
+     * θ + x, where x = ω·dt/2 and s is the horizontal distance traveled, plus a sideways offset caused by the
+     * speed changing while turning. The horizontal and vertical distances are integrated the same way over the
+     * change of the dive angle, so large steps follow the same curve as many small ones.
+     *
+     * The course is held like a compass heading, so the position is moved along the rhumb line of the chord using
+     * the cosine of the latitude at the middle of the move, which needs no asin or atan2. The terms left out are of
+     * order δ³·tan²φ on the angular distance δ, so the rhumb line is only used for moves shorter than
+     * RHUMB_MAX_DISTANCE and below the latitude of RHUMB_MIN_COS_LAT. Measured against the exact rhumb line the
+     * error at those limits is at most 0.6 millimeters per step, and would grow to 2 centimeters at twice the
+     * distance and half the cosine. Longer moves and moves nearer to the poles follow the great circle of the chord.
+     *
+     * If the dive angle reaches ±π/2 during the step it's assumed to change at the rate needed to reach the limit
+     * at the end of the step. Steps longer than MAX_STEP are split in shorter ones.
+     *
+     * @param from First row to integrate
+     * @param to Row after the last one to integrate
+     * @param dt Time passed since last update in seconds
+     */
+    public void integrate(int from, int to, double dt) {
+        // Nothing moves if no time passed
+        if (dt == 0) {
+            return;
+        }
+
+        if (fast) {
+            integrateFast(from, to, dt);
+            return;
+        }
+
+        if (dt > MAX_STEP) {
+            integrateSplit(from, to, dt, false);
+            return;
+        }
+
+        double[] lat = this.lat;
+        double[] lon = this.lon;
+        double[] altitude = this.altitude;
+        double[] course = this.course;
+        double[] diveAngle = this.diveAngle;
+        double[] speed = this.speed;
+        double[] acceleration = this.acceleration;
+        double[] turnRate = this.turnRate;
+        double[] diveRate = this.diveRate;
+
+        for (int i = from; i < to; i++) {
+            // Change the speed given the acceleration
+            double a = acceleration[i];
+            double v0 = speed[i];
+            double v = v0 + a * dt;
+            speed[i] = v;
+
+            // Change course and dive angle given their rates
+            double θ0 = course[i];
+            double x = turnRate[i] * dt / 2;
+            course[i] = normalizeCourse(θ0 + 2 * x);
+
+            double γ0 = diveAngle[i];
+            double γ = Math.max(-Math.PI / 2, Math.min(Math.PI / 2, γ0 + diveRate[i] * dt));
+            diveAngle[i] = γ;
+
+            // Horizontal and vertical distances, integrated over the dive angle change
+            double y = (γ - γ0) / 2;
+            double γm = γ0 + y;
+            double vm = v0 + a * dt / 2;
+
+            double sinY = Math.sin(y);
+            double chordY = vm * dt * chordRatio(y, sinY);
+            double offsetY = a * dt * dt * arcOffset(y, sinY, Math.cos(y));
+
+            double sinγm = Math.sin(γm);
+            double cosγm = Math.cos(γm);
+
+            double horizontal = chordY * cosγm - offsetY * sinγm;
+            double vertical = chordY * sinγm + offsetY * cosγm;
+
+            // Horizontal move, integrated over the course change
+            double hAccel = a * cosγm - vm * (2 * y / dt) * sinγm;
+
+            double sinX = Math.sin(x);
+            double along = horizontal * chordRatio(x, sinX);
+            double across = hAccel * dt * dt * arcOffset(x, sinX, Math.cos(x));
+
+            double θm = θ0 + x;
+            double sinθm = Math.sin(θm);
+            double cosθm = Math.cos(θm);
+
+            double north = along * cosθm - across * sinθm;
+            double east = along * sinθm + across * cosθm;
+
+            if (north != 0 || east != 0) {
+                double φ = lat[i];
+                double Δφ = north / GeoConsts.EARTH_RADIUS;
+                double cosφm = Math.cos(φ + Δφ / 2);
+                double δ = Math.sqrt(north * north + east * east) / GeoConsts.EARTH_RADIUS;
+
+                if (δ <= RHUMB_MAX_DISTANCE && cosφm >= RHUMB_MIN_COS_LAT) {
+                    // Move along the rhumb line, as the course is held like a compass heading
+                    lat[i] = φ + Δφ;
+                    lon[i] = normalizeLongitude(lon[i] + east / (GeoConsts.EARTH_RADIUS * cosφm));
+                } else {
+                    // Long moves and moves near the poles follow the great circle
+                    double cosβ = north / (δ * GeoConsts.EARTH_RADIUS);
+                    double sinβ = east / (δ * GeoConsts.EARTH_RADIUS);
+
+                    double sinφ = Math.sin(φ);
+                    double cosφ = Math.cos(φ);
+                    double sinδ = Math.sin(δ);
+                    double cosδ = Math.cos(δ);
+
+                    double sinφ2 = sinφ * cosδ + cosφ * sinδ * cosβ;
+                    double φ2 = Math.asin(sinφ2);
+                    double λ2 = lon[i] + Math.atan2(sinβ * sinδ * cosφ, cosδ - sinφ * sinφ2);
+
+                    lat[i] = φ2;
+                    lon[i] = normalizeLongitude(λ2);
+                }
+            }
+
+            // Add the climbed meters to the current altitude
+            altitude[i] += vertical;
+        }
+    }
+
+    /**
+     * Integrates the given range of rows like integrate, evaluating the sines and cosines with FastTrig. Rows
+     * keeping a constant course and dive angle, the most common case, move along a straight segment and skip the
+     * arc integration. Results differ from integrate by less than a micrometer per step.
+     *
+     * @param from First row to integrate
+     * @param to Row after the last one to integrate
+     * @param dt Time passed since last update in seconds
+     */
+    public void integrateFast(int from, int to, double dt) {
+        // Nothing moves if no time passed
+        if (dt == 0) {
+            return;
+        }
+
+        if (dt > MAX_STEP) {
+            integrateSplit(from, to, dt, true);
+            return;
+        }
+
+        double[] lat = this.lat;
+        double[] lon = this.lon;
+        double[] altitude = this.altitude;
+        double[] course = this.course;
+        double[] diveAngle = this.diveAngle;
+        double[] speed = this.speed;
+        double[] acceleration = this.acceleration;
+        double[] turnRate = this.turnRate;
+        double[] diveRate = this.diveRate;
+
+        double maxDistance = RHUMB_MAX_DISTANCE;
+        double minCosLat = RHUMB_MIN_COS_LAT;
+        double radius = GeoConsts.EARTH_RADIUS;
+
+        for (int i = from; i < to; i++) {
+            // Change the speed given the acceleration
+            double a = acceleration[i];
+            double v0 = speed[i];
+            double v = v0 + a * dt;
+            speed[i] = v;
+
+            // Change course and dive angle given their rates
+            double θ0 = course[i];
+            double x = turnRate[i] * dt / 2;
+            course[i] = normalizeCourse(θ0 + 2 * x);
+
+            double γ0 = diveAngle[i];
+            double γ = Math.max(-Math.PI / 2, Math.min(Math.PI / 2, γ0 + diveRate[i] * dt));
+            diveAngle[i] = γ;
+
+            // Half the dive angle change and the mean speed
+            double y = (γ - γ0) / 2;
+            double vm = v0 + a * dt / 2;
+
+            double north;
+            double east;
+            double vertical;
+
+            if (x == 0 && y == 0) {
+                // Constant course and dive angle, the move is a straight segment
+                double distance = vm * dt;
+                double horizontal = distance * FastTrig.cos(γ);
+
+                vertical = distance * FastTrig.sin(γ);
+                north = horizontal * FastTrig.cos(θ0);
+                east = horizontal * FastTrig.sin(θ0);
+            } else {
+                // Horizontal and vertical distances, integrated over the dive angle change
+                double γm = γ0 + y;
+
+                double sinY = FastTrig.sin(y);
+                double chordY = vm * dt * chordRatio(y, sinY);
+                double offsetY = a * dt * dt * arcOffset(y, sinY, FastTrig.cos(y));
+
+                double sinγm = FastTrig.sin(γm);
+                double cosγm = FastTrig.cos(γm);
+
+                double horizontal = chordY * cosγm - offsetY * sinγm;
+                vertical = chordY * sinγm + offsetY * cosγm;
+
+                // Horizontal move, integrated over the course change
+                double hAccel = a * cosγm - vm * (2 * y / dt) * sinγm;
+
+                double sinX = FastTrig.sin(x);
+                double along = horizontal * chordRatio(x, sinX);
+                double across = hAccel * dt * dt * arcOffset(x, sinX, FastTrig.cos(x));
+
+                double θm = θ0 + x;
+                double sinθm = FastTrig.sin(θm);
+                double cosθm = FastTrig.cos(θm);
+
+                north = along * cosθm - across * sinθm;
+                east = along * sinθm + across * cosθm;
+            }
+
+            if (north != 0 || east != 0) {
+                double φ = lat[i];
+                double Δφ = north / radius;
+                double cosφm = FastTrig.cos(φ + Δφ / 2);
+                double δ = Math.sqrt(north * north + east * east) / radius;
+
+                if (δ <= maxDistance && cosφm >= minCosLat) {
+                    // Move along the rhumb line, as the course is held like a compass heading
+                    lat[i] = φ + Δφ;
+                    lon[i] = normalizeLongitude(lon[i] + east / (radius * cosφm));
+                } else {
+                    // Long moves and moves near the poles follow the great circle
+                    double cosβ = north / (δ * radius);
+                    double sinβ = east / (δ * radius);
+
+                    double sinφ = FastTrig.sin(φ);
+                    double cosφ = FastTrig.cos(φ);
+                    double sinδ = Math.sin(δ);
+                    double cosδ = Math.cos(δ);
+
+                    double sinφ2 = sinφ * cosδ + cosφ * sinδ * cosβ;
+                    double φ2 = Math.asin(sinφ2);
+                    double λ2 = lon[i] + Math.atan2(sinβ * sinδ * cosφ, cosδ - sinφ * sinφ2);
+
+                    lat[i] = φ2;
+                    lon[i] = normalizeLongitude(λ2);
+                }
+            }
+
+            // Add the climbed meters to the current altitude
+            altitude[i] += vertical;
+        }
+    }
+
+    /**
+     * Integrates a step longer than MAX_STEP as several equal steps
+     *
+     * @param from First row to integrate
+     * @param to Row after the last one to integrate
+     * @param dt Time passed since last update in seconds
+     * @param fast True to use the fast path
+     */
+    private void integrateSplit(int from, int to, double dt, boolean fast) {
+        int steps = (int) Math.ceil(dt / MAX_STEP);
+        double step = dt / steps;
+
+        for (int i = 0; i < steps; i++) {
+            if (fast) {
+                integrateFast(from, to, step);
+            } else {
+                integrate(from, to, step);
+            }
+        }
+    }
+
+    /**
+     * Returns sin(x) / x, the ratio between the chord and the length of an arc turning 2x
+     *
+     * @param x Half the angle turned in radians
+     * @param sinX Sine of x
+     * @return Chord to arc ratio
+     */
+    static double chordRatio(double x, double sinX) {
+        // Use the series near zero where the division loses precision
+        if (Math.abs(x) < 1e-2) {
+            double x2 = x * x;
+            return 1 - x2 / 6 + x2 * x2 / 120;
+        }
+
+        return sinX / x;
+    }
+
+    /**
+     * Returns (sin(x) - x·cos(x)) / 2x², the sideways offset at the end of an arc turning 2x per unit of speed
+     * change and squared time, caused by covering less distance on one half of the arc than on the other
+     *
+     * @param x Half the angle turned in radians
+     * @param sinX Sine of x
+     * @param cosX Cosine of x
+     * @return Offset factor
+     */
+    static double arcOffset(double x, double sinX, double cosX) {
+        // Use the series near zero where the subtraction loses precision
+        if (Math.abs(x) < 1e-2) {
+            double x2 = x * x;
+            return x / 6 - x * x2 / 60 + x * x2 * x2 / 1680;
+        }
+
+        return (sinX - x * cosX) / (2 * x * x);
+    }
+
+    /**
+     * Normalizes a course to the range 0 to 2π
+     *
+     * @param course Course in radians
+     * @return Normalized course in radians
+     */
+    static double normalizeCourse(double course) {
+        if (course >= 0 && course < 2 * Math.PI) {
+            return course;
+        }
+
+        course %= 2 * Math.PI;
+
+        return course < 0 ? course + 2 * Math.PI : course;
+    }
+
+    /**
+     * Normalizes a longitude to the range -π to π
+     *
+     * @param lon Longitude in radians
+     * @return Normalized longitude in radians
+     */
+    static double normalizeLongitude(double lon) {
+        if (lon >= -Math.PI && lon < Math.PI) {
+            return lon;
+        }
+
+        lon = (lon + Math.PI) % (2 * Math.PI);
+
+        return (lon < 0 ? lon + 2 * Math.PI : lon) - Math.PI;
+    }
+}
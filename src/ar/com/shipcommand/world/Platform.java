@@ -2,10 +2,21 @@ package ar.com.shipcommand.world;
 
 import ar.com.shipcommand.physics.AccelProfile;
 import ar.com.shipcommand.physics.DragProfile;
+import ar.com.shipcommand.physics.MotionProfile;
 import ar.com.shipcommand.physics.TurnProfile;
-import ar.com.shipcommand.physics.magnitudes.Speed;
+import ar.com.shipcommand.world.sensors.Sensor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public abstract class Platform extends SimObject {
+    /**
+     * Difference in meters per second under which the speed is considered equal to the one set by the throttle
+     */
+    private static double SPEED_TOLERANCE = 1e-6;
+
     private String name;
     protected String className = "Unknown";
 
@@ -13,30 +24,177 @@ public abstract class Platform extends SimObject {
     private double rudder;
     private double planes;
 
+    private PlatformClass platformClass;
+
+    // Profiles being built by init when the platform has no class
     private AccelProfile accelProfile;
     private DragProfile dragProfile;
     private TurnProfile turnProfile;
     private TurnProfile diveProfile;
 
+    // Segments found on the last lookup of each profile
+    private int accelSegment = 0;
+    private int dragSegment = 0;
+    private int turnSegment = 0;
+    private int diveSegment = 0;
+
+    private List<Sensor> sensors;
+
+    /**
+     * Creates a new platform with its own profiles, filled in by init
+     *
+     * @param name Name of the platform
+     */
     public Platform(String name) {
+        this(name, KinematicStore.getShared());
+    }
+
+    /**
+     * Creates a new platform with its own profiles, filled in by init
+     *
+     * @param name Name of the platform
+     * @param store Store where the platform's state is kept
+     */
+    public Platform(String name, KinematicStore store) {
+        super(store);
+
         this.name = name;
 
         this.accelProfile = new AccelProfile();
         this.dragProfile = new DragProfile();
         this.turnProfile = new TurnProfile();
         this.diveProfile = new TurnProfile();
+        this.sensors = new ArrayList<>();
 
         init();
+
+        this.platformClass = new PlatformClass(className, accelProfile, dragProfile, turnProfile, diveProfile,
+                Collections.<Sensor>emptyList());
+
+        this.accelProfile = null;
+        this.dragProfile = null;
+        this.turnProfile = null;
+        this.diveProfile = null;
+    }
+
+    /**
+     * Creates a new platform of the given class, sharing its profiles and sensors
+     *
+     * @param name Name of the platform
+     * @param platformClass Class of the platform
+     */
+    public Platform(String name, PlatformClass platformClass) {
+        this(name, platformClass, KinematicStore.getShared());
+    }
+
+    /**
+     * Creates a new platform of the given class, sharing its profiles and sensors
+     *
+     * @param name Name of the platform
+     * @param platformClass Class of the platform
+     * @param store Store where the platform's state is kept
+     */
+    public Platform(String name, PlatformClass platformClass, KinematicStore store) {
+        super(store);
+
+        this.name = name;
+        this.platformClass = platformClass;
+        this.className = platformClass.getName();
+        this.sensors = platformClass.getSensors();
+    }
+
+    /**
+     * Fills in the profiles of platforms created without a class, using the profile getters. Does nothing by
+     * default
+     */
+    protected void init() {
+    }
+
+    /**
+     * Returns the acceleration profile being built, only available during init
+     *
+     * @return Acceleration profile at full throttle
+     */
+    protected AccelProfile getAccelProfile() {
+        return accelProfile;
+    }
+
+    /**
+     * Returns the drag profile being built, only available during init
+     *
+     * @return Drag profile
+     */
+    protected DragProfile getDragProfile() {
+        return dragProfile;
+    }
+
+    /**
+     * Returns the turning profile being built, only available during init
+     *
+     * @return Turning profile at full rudder
+     */
+    protected TurnProfile getTurnProfile() {
+        return turnProfile;
+    }
+
+    /**
+     * Returns the diving profile being built, only available during init
+     *
+     * @return Diving profile at full planes
+     */
+    protected TurnProfile getDiveProfile() {
+        return diveProfile;
+    }
+
+    /**
+     * Returns the class of the platform. Platforms created without a class get one of their own
+     *
+     * @return Platform class
+     */
+    public PlatformClass getPlatformClass() {
+        return platformClass;
+    }
+
+    /**
+     * Returns the platform's name
+     *
+     * @return Name of the platform
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the sensors mounted on the platform
+     *
+     * @return Unmodifiable list of sensors
+     */
+    public List<Sensor> getSensors() {
+        return Collections.unmodifiableList(sensors);
     }
 
-    protected abstract void init();
+    /**
+     * Mounts a sensor on the platform, it must be done before adding the platform to a detection engine
+     *
+     * @param sensor Sensor to add
+     */
+    public void addSensor(Sensor sensor) {
+        // Sensors of the class are shared, the platform gets its own list when a sensor is added
+        List<Sensor> copy = new ArrayList<>(sensors);
+        copy.add(sensor);
+
+        sensors = copy;
+    }
 
     public double getThrottle() {
         return throttle;
     }
 
     public void setThrottle(double throttle) {
+        getSchedule().catchUp();
+
         this.throttle = throttle;
+        getSchedule().promote();
     }
 
     public double getRudder() {
@@ -44,10 +202,13 @@ public abstract class Platform extends SimObject {
     }
 
     public void setRudder(double rudder) {
+        getSchedule().catchUp();
+
         if (rudder > 1) rudder = 1;
         if (rudder < -1) rudder = -1;
 
         this.rudder = rudder;
+        getSchedule().promote();
     }
 
     public double getPlanes() {
@@ -55,34 +216,153 @@ public abstract class Platform extends SimObject {
     }
 
     public void setPlanes(short planes) {
+        getSchedule().catchUp();
+
         if (planes > 1) planes = 1;
         if (planes < -1) planes = -1;
 
         this.planes = planes;
+        getSchedule().promote();
+    }
+
+    /**
+     * Clears the platform's state and controls before it's handed out by its pool, the class and sensors are
+     * kept
+     */
+    protected void reset() {
+        super.reset();
+
+        throttle = 0;
+        rudder = 0;
+        planes = 0;
+    }
+
+    /**
+     * Returns the number of bytes written by writeCheckpoint
+     *
+     * @return Size in bytes
+     */
+    protected int getCheckpointSize() {
+        return super.getCheckpointSize() + 3 * 8;
+    }
+
+    /**
+     * Returns the id of the platform's class, written on checkpoints so the platform can be created again
+     *
+     * @return Platform class id, -1 if the class is not from a catalog
+     */
+    protected int getCheckpointVariantId() {
+        return platformClass.getId();
+    }
+
+    /**
+     * Returns the name of the platform's class, written on checkpoints so the platform can be created again
+     *
+     * @return Platform class name
+     */
+    protected String getCheckpointVariantName() {
+        return platformClass.getName();
     }
 
+    /**
+     * Writes the platform's state and controls to a checkpoint. The profiles are not written, they are rebuilt from
+     * the platform's class, whose id and name are written on the record so a factory can find it
+     *
+     * @param buffer Buffer where the state is written
+     */
+    protected void writeCheckpoint(ByteBuffer buffer) {
+        super.writeCheckpoint(buffer);
+
+        buffer.putDouble(throttle);
+        buffer.putDouble(rudder);
+        buffer.putDouble(planes);
+    }
+
+    /**
+     * Reads the platform's state and controls from a checkpoint
+     *
+     * @param buffer Buffer positioned on the platform's state
+     */
+    protected void readCheckpoint(ByteBuffer buffer) {
+        super.readCheckpoint(buffer);
+
+        throttle = buffer.getDouble();
+        rudder = buffer.getDouble();
+        planes = buffer.getDouble();
+    }
+
+    /**
+     * Updates the acceleration and the turning and diving rates from the profiles of the class and the controls,
+     * then integrates the position. The speed stops changing once it reaches the one set by the throttle
+     *
+     * @param dt Time passed since last update
+     */
     public void timeStep(double dt) {
-        Speed speed = getSpeed();
-        Speed accel = getAcceleration();
+        MotionProfile accel = platformClass.getAccelProfile();
+        MotionProfile drag = platformClass.getDragProfile();
+        MotionProfile turn = platformClass.getTurnProfile();
+        MotionProfile dive = platformClass.getDiveProfile();
 
-        double speedMs = speed.inMetersPerSecond();;
+        double speedMs = getSpeedMetersPerSecond();
+        double currentMaxSpeedMs = platformClass.getMaxSpeed() * throttle;
+        double acceleration;
 
-        double currentMaxSpeedMs = accelProfile.getMaxSpeed().inMetersPerSecond() * throttle;
+        if (Math.abs(speedMs - currentMaxSpeedMs) <= SPEED_TOLERANCE) {
+            // The speed reached the one set by the throttle, hold it so the platform is steady
+            speedMs = currentMaxSpeedMs;
+            setSpeedMetersPerSecond(speedMs);
 
-        if (speedMs < currentMaxSpeedMs) {
-            accelProfile.interpolate(speed, accel, throttle);
-        } else if (speedMs > currentMaxSpeedMs) {
-            dragProfile.interpolate(speed, accel, throttle);
+            acceleration = 0;
+        } else if (speedMs < currentMaxSpeedMs) {
+            if (accel.isAbove(speedMs)) {
+                acceleration = 0;
+            } else {
+                accelSegment = accel.locate(speedMs, accelSegment);
+                acceleration = accel.interpolate(speedMs, accelSegment) * throttle;
+            }
         } else {
-            accel.setMetersPerSecond(0);
+            if (drag.isAbove(speedMs)) {
+                acceleration = -drag.proportional(speedMs);
+            } else {
+                dragSegment = drag.locate(speedMs, dragSegment);
+                acceleration = -drag.interpolate(speedMs, dragSegment) * (1 - throttle);
+            }
+        }
+
+        // Don't go past the speed set by the throttle
+        if (dt > 0 && (speedMs - currentMaxSpeedMs) * (speedMs + acceleration * dt - currentMaxSpeedMs) < 0) {
+            acceleration = (currentMaxSpeedMs - speedMs) / dt;
         }
 
-        double turnSpeed = turnProfile.interpolate(speed) * rudder;
-        setTurningSpeed(turnSpeed);
+        setAccelerationMetersPerSecond(acceleration);
 
-        double divingSpeed = diveProfile.interpolate(speed) * planes;
-        setDivingSpeed(divingSpeed);
+        setTurningSpeedRadiansPerSecond(rate(turn, speedMs, true) * rudder);
+        setDivingSpeedRadiansPerSecond(rate(dive, speedMs, false) * planes);
 
         super.timeStep(dt);
     }
+
+    /**
+     * Reads a turning or diving rate from a profile, keeping the segment found for the next lookup
+     *
+     * @param profile Turning or diving profile
+     * @param speedMs Current speed in meters per second
+     * @param turning True to use the turning segment, false to use the diving one
+     * @return Rate in radians per second at full rudder or planes
+     */
+    private double rate(MotionProfile profile, double speedMs, boolean turning) {
+        if (profile.isAbove(speedMs)) {
+            return profile.proportional(speedMs);
+        }
+
+        int segment = profile.locate(speedMs, turning ? turnSegment : diveSegment);
+
+        if (turning) {
+            turnSegment = segment;
+        } else {
+            diveSegment = segment;
+        }
+
+        return profile.interpolate(speedMs, segment);
+    }
 }
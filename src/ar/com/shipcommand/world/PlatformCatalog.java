@@ -0,0 +1,710 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.physics.AccelProfile;
+import ar.com.shipcommand.physics.DragProfile;
+import ar.com.shipcommand.physics.MotionProfile;
+import ar.com.shipcommand.physics.TurnProfile;
+import ar.com.shipcommand.physics.magnitudes.Distance;
+import ar.com.shipcommand.physics.magnitudes.DistanceUnits;
+import ar.com.shipcommand.physics.magnitudes.Speed;
+import ar.com.shipcommand.physics.magnitudes.SpeedUnits;
+import ar.com.shipcommand.world.sensors.Sensor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Catalog of platform classes loaded from text definitions.
+ *
+ * Each file with the .platform extension on the catalog directory holds one or more class definitions, one
+ * property per line. Empty lines and lines starting with # are ignored:
+ *
+ * <pre>
+ * class 12 Type 209                  Class id and name
+ * maxspeed 22 Knots                  Top speed, optional, the last acceleration speed by default
+ * accel 0 0.6 Knots                  Speed and acceleration per second at full throttle
+ * drag 22 0.4 Knots                  Speed and deceleration per second
+ * turn 10 180 Knots                  Speed and turning rate in degrees per minute at full rudder
+ * dive 10 60 Knots                   Speed and diving rate in degrees per minute at full planes
+ * sensor 20 NauticalMiles 5 Sonar    Range, range units, seconds between scans and sensor name
+ * </pre>
+ *
+ * Parsing the text is only done when the definitions change. The parsed classes are compiled to a binary cache
+ * file along with a fingerprint of the definition files, later loads with the same definitions map the cache and
+ * decode each class the first time it's requested, so startup doesn't depend on the number of classes.
+ *
+ * The cache starts with a header holding MAGIC, VERSION, the fingerprint, the number of classes and the size of
+ * the file, followed by the id and offset of each class sorted by id and then the class records. The cache is
+ * written to a temporary file that is moved over the previous one once complete, so an interrupted compilation
+ * never leaves a partial cache behind.
+ */
+public class PlatformCatalog implements ICheckpointFactory {
+    static int MAGIC = 0x53435043;
+    static int VERSION = 2;
+
+    /**
+     * Size in bytes of the cache header
+     */
+    private static int HEADER_SIZE = 4 + 4 + 8 + 4 + 8;
+
+    /**
+     * Extension of the class definition files
+     */
+    private static String EXTENSION = ".platform";
+
+    private ByteBuffer buffer;
+    private boolean compiled;
+
+    private int[] ids;
+    private int[] offsets;
+    private PlatformClass[] classes;
+    private HashMap<String, Integer> names = null;
+
+    /**
+     * Creates a catalog over a compiled cache
+     *
+     * @param buffer Contents of the cache
+     * @param compiled True if the cache was compiled on this load
+     */
+    private PlatformCatalog(ByteBuffer buffer, boolean compiled) {
+        this.buffer = buffer;
+        this.compiled = compiled;
+
+        int count = buffer.getInt(16);
+
+        ids = new int[count];
+        offsets = new int[count];
+        classes = new PlatformClass[count];
+
+        for (int i = 0; i < count; i++) {
+            ids[i] = buffer.getInt(HEADER_SIZE + i * 8);
+            offsets[i] = buffer.getInt(HEADER_SIZE + i * 8 + 4);
+        }
+    }
+
+    /**
+     * Loads the class definitions of a directory, using the compiled cache if it's up to date and compiling it
+     * otherwise
+     *
+     * @param directory Directory with the class definition files
+     * @param cacheFile File where the compiled classes are kept
+     * @return Loaded catalog
+     */
+    public static PlatformCatalog load(String directory, String cacheFile) throws IOException {
+        File[] files = listDefinitions(new File(directory));
+        long fingerprint = fingerprint(files);
+
+        File cache = new File(cacheFile);
+
+        if (cache.isFile()) {
+            MappedByteBuffer buffer = map(cache);
+
+            if (buffer != null && buffer.getLong(8) == fingerprint) {
+                return new PlatformCatalog(buffer, false);
+            }
+        }
+
+        List<PlatformClass> parsed = new ArrayList<>();
+
+        for (File file : files) {
+            parse(file, parsed);
+        }
+
+        compile(parsed, fingerprint, cache);
+
+        MappedByteBuffer buffer = map(cache);
+
+        if (buffer == null) {
+            throw new IOException("Not a supported platform catalog: " + cache);
+        }
+
+        return new PlatformCatalog(buffer, true);
+    }
+
+    /**
+     * Returns if the definitions were parsed and compiled on this load
+     *
+     * @return True if compiled, false if the cache was up to date
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Returns the number of classes on the catalog
+     *
+     * @return Number of classes
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the ids of the classes on the catalog
+     *
+     * @return Class ids in ascending order
+     */
+    public int[] getIds() {
+        return ids.clone();
+    }
+
+    /**
+     * Returns a class by its id
+     *
+     * @param id Class id
+     * @return Platform class, null if there is no class with that id
+     */
+    public synchronized PlatformClass get(int id) {
+        int i = Arrays.binarySearch(ids, id);
+
+        if (i < 0) {
+            return null;
+        }
+
+        if (classes[i] == null) {
+            classes[i] = read(id, offsets[i]);
+        }
+
+        return classes[i];
+    }
+
+    /**
+     * Returns a class by its name
+     *
+     * @param name Class name
+     * @return Platform class, null if there is no class with that name
+     */
+    public synchronized PlatformClass get(String name) {
+        if (names == null) {
+            // Only the names are read, the classes are decoded when they're requested
+            names = new HashMap<>();
+
+            for (int i = 0; i < ids.length; i++) {
+                ByteBuffer record = buffer.duplicate();
+                record.position(offsets[i]);
+
+                names.put(readString(record), ids[i]);
+            }
+        }
+
+        Integer id = names.get(name);
+
+        return id != null ? get(id) : null;
+    }
+
+    /**
+     * Creates a new platform of a class of the catalog
+     *
+     * @param name Name of the platform
+     * @param id Class id
+     * @return New platform
+     */
+    public CatalogPlatform create(String name, int id) {
+        PlatformClass platformClass = get(id);
+
+        if (platformClass == null) {
+            throw new IllegalArgumentException("Unknown platform class: " + id);
+        }
+
+        return new CatalogPlatform(name, platformClass);
+    }
+
+    /**
+     * Platforms can only be created from a checkpoint knowing their class
+     *
+     * @param type Name of the object's class as written on the checkpoint
+     * @return Always null
+     */
+    public SimObject create(String type) {
+        return null;
+    }
+
+    /**
+     * Creates a catalog platform found on a checkpoint, the class is looked up by id and then by name. The platform
+     * is named after its class
+     *
+     * @param type Name of the object's class as written on the checkpoint
+     * @param variantId Id of the platform's class
+     * @param variantName Name of the platform's class
+     * @return New platform or null if it's not a catalog platform or its class is not in the catalog
+     */
+    public SimObject create(String type, int variantId, String variantName) {
+        if (!CatalogPlatform.class.getName().equals(type)) {
+            return null;
+        }
+
+        PlatformClass platformClass = variantId >= 0 ? get(variantId) : null;
+
+        if (platformClass == null && variantName != null) {
+            platformClass = get(variantName);
+        }
+
+        return platformClass != null ? new CatalogPlatform(platformClass.getName(), platformClass) : null;
+    }
+
+    /**
+     * Decodes a class from the cache
+     *
+     * @param id Class id
+     * @param offset Position of the class record
+     * @return Platform class
+     */
+    private PlatformClass read(int id, int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+
+        String name = readString(record);
+        double maxSpeed = record.getDouble();
+
+        MotionProfile accel = readProfile(record);
+        MotionProfile drag = readProfile(record);
+        MotionProfile turn = readProfile(record);
+        MotionProfile dive = readProfile(record);
+
+        int sensorCount = record.getInt();
+        List<Sensor> sensors = new ArrayList<>(sensorCount);
+
+        for (int i = 0; i < sensorCount; i++) {
+            String sensorName = readString(record);
+            double range = record.getDouble();
+            double interval = record.getDouble();
+
+            sensors.add(new Sensor(sensorName, range, interval));
+        }
+
+        return new PlatformClass(id, name, maxSpeed, accel, drag, turn, dive, sensors);
+    }
+
+    /**
+     * Writes the compiled cache
+     *
+     * @param parsed Classes to write
+     * @param fingerprint Fingerprint of the definition files
+     * @param cache Cache file
+     */
+    private static void compile(List<PlatformClass> parsed, long fingerprint, File cache) throws IOException {
+        PlatformClass[] sorted = parsed.toArray(new PlatformClass[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.getId(), b.getId()));
+
+        ByteBuffer records = ByteBuffer.allocate(64 * 1024);
+        int[] offsets = new int[sorted.length];
+        int base = HEADER_SIZE + sorted.length * 8;
+
+        for (int i = 0; i < sorted.length; i++) {
+            offsets[i] = base + records.position();
+            records = write(sorted[i], records);
+        }
+
+        records.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(base);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(fingerprint);
+        header.putInt(sorted.length);
+        header.putLong((long) base + records.remaining());
+
+        for (int i = 0; i < sorted.length; i++) {
+            header.putInt(sorted[i].getId());
+            header.putInt(offsets[i]);
+        }
+
+        header.flip();
+
+        // Write a temporary file next to the cache and move it in place once complete
+        File directory = cache.getAbsoluteFile().getParentFile();
+        Path temp = File.createTempFile(cache.getName(), ".tmp", directory).toPath();
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temp, cache.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cache.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes a class record, growing the buffer if needed
+     *
+     * @param platformClass Class to write
+     * @param buffer Buffer where the record is written
+     * @return Buffer holding the record, the given one or a bigger copy
+     */
+    private static ByteBuffer write(PlatformClass platformClass, ByteBuffer buffer) {
+        List<Sensor> sensors = platformClass.getSensors();
+
+        // Upper bound of the record size, names take at most 3 bytes per char
+        int size = 4 + platformClass.getName().length() * 3 + 8 + 4;
+        size += profileSize(platformClass.getAccelProfile()) + profileSize(platformClass.getDragProfile());
+        size += profileSize(platformClass.getTurnProfile()) + profileSize(platformClass.getDiveProfile());
+
+        for (Sensor sensor : sensors) {
+            size += 4 + sensor.getName().length() * 3 + 8 + 8;
+        }
+
+        if (buffer.remaining() < size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+
+        writeString(buffer, platformClass.getName());
+        buffer.putDouble(platformClass.getMaxSpeed());
+
+        writeProfile(buffer, platformClass.getAccelProfile());
+        writeProfile(buffer, platformClass.getDragProfile());
+        writeProfile(buffer, platformClass.getTurnProfile());
+        writeProfile(buffer, platformClass.getDiveProfile());
+
+        buffer.putInt(sensors.size());
+
+        for (Sensor sensor : sensors) {
+            writeString(buffer, sensor.getName());
+            buffer.putDouble(sensor.getRange());
+            buffer.putDouble(sensor.getInterval());
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Parses the class definitions of a file
+     *
+     * @param file Definition file
+     * @param parsed List where the classes found are added
+     */
+    private static void parse(File file, List<PlatformClass> parsed) throws IOException {
+        Definition current = null;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] tokens = line.split("\\s+");
+                String where = file.getName() + ":" + lineNumber;
+
+                try {
+                    String key = tokens[0].toLowerCase();
+
+                    if (key.equals("class")) {
+                        if (current != null) {
+                            add(current.build(), parsed, where);
+                        }
+
+                        current = new Definition(Integer.parseInt(tokens[1]), rest(tokens, 2));
+                        continue;
+                    }
+
+                    if (current == null) {
+                        throw new IOException("Property before the first class at " + where);
+                    }
+
+                    switch (key) {
+                        case "maxspeed":
+                            current.maxSpeed = speed(tokens[1], tokens[2]).inMetersPerSecond();
+                            break;
+                        case "accel":
+                            current.accel.add(speed(tokens[1], tokens[3]), speed(tokens[2], tokens[3]));
+                            break;
+                        case "drag":
+                            current.drag.add(speed(tokens[1], tokens[3]), speed(tokens[2], tokens[3]));
+                            break;
+                        case "turn":
+                            current.turn.add(speed(tokens[1], tokens[3]), Double.parseDouble(tokens[2]));
+                            break;
+                        case "dive":
+                            current.dive.add(speed(tokens[1], tokens[3]), Double.parseDouble(tokens[2]));
+                            break;
+                        case "sensor":
+                            Distance range = new Distance(Double.parseDouble(tokens[1]),
+                                    DistanceUnits.valueOf(tokens[2]));
+                            current.sensors.add(new Sensor(rest(tokens, 4), range, Double.parseDouble(tokens[3])));
+                            break;
+                        default:
+                            throw new IOException("Unknown property " + tokens[0] + " at " + where);
+                    }
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw new IOException("Invalid platform definition at " + where + ": " + line, e);
+                }
+            }
+        }
+
+        if (current != null) {
+            String where = file.getName() + ":" + lineNumber;
+
+            try {
+                add(current.build(), parsed, where);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid platform definition at " + where, e);
+            }
+        }
+    }
+
+    /**
+     * Adds a parsed class checking that its id and name are not repeated
+     *
+     * @param platformClass Parsed class
+     * @param parsed Classes parsed so far
+     * @param where File and line where the class ends
+     */
+    private static void add(PlatformClass platformClass, List<PlatformClass> parsed, String where) throws IOException {
+        for (PlatformClass other : parsed) {
+            if (other.getId() == platformClass.getId() || other.getName().equals(platformClass.getName())) {
+                throw new IOException("Repeated platform class " + platformClass.getId() + " "
+                        + platformClass.getName() + " at " + where);
+            }
+        }
+
+        parsed.add(platformClass);
+    }
+
+    /**
+     * Returns the definition files of a directory
+     *
+     * @param directory Catalog directory
+     * @return Definition files sorted by name
+     */
+    private static File[] listDefinitions(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+
+        if (files == null) {
+            throw new IOException("Can't read the platform catalog directory: " + directory);
+        }
+
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+
+        return files;
+    }
+
+    /**
+     * Hashes the names, sizes and modification times of the definition files
+     *
+     * @param files Definition files
+     * @return Fingerprint of the definitions
+     */
+    private static long fingerprint(File[] files) {
+        long hash = 0xCBF29CE484222325L;
+
+        for (File file : files) {
+            hash = (hash ^ file.getName().hashCode()) * 0x100000001B3L;
+            hash = (hash ^ file.length()) * 0x100000001B3L;
+            hash = (hash ^ file.lastModified()) * 0x100000001B3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Maps a cache file and checks its header
+     *
+     * @param cache Cache file
+     * @return Buffer with the file contents, null if it's not a supported cache
+     */
+    private static MappedByteBuffer map(File cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(20) != buffer.limit()) {
+                return null;
+            }
+
+            // The index and every record must start inside the file
+            int count = buffer.getInt(16);
+            long records = HEADER_SIZE + (long) count * 8;
+
+            if (count < 0 || records > buffer.limit()) {
+                return null;
+            }
+
+            for (int i = 0; i < count; i++) {
+                int offset = buffer.getInt(HEADER_SIZE + i * 8 + 4);
+
+                if (offset < records || offset >= buffer.limit()) {
+                    return null;
+                }
+            }
+
+            return buffer;
+        }
+    }
+
+    /**
+     * Returns the number of bytes written by writeProfile
+     *
+     * @param profile Motion profile
+     * @return Size in bytes
+     */
+    private static int profileSize(MotionProfile profile) {
+        return 4 + profile.size() * 16;
+    }
+
+    /**
+     * Writes a motion profile
+     *
+     * @param buffer Buffer where the profile is written
+     * @param profile Profile to write
+     */
+    private static void writeProfile(ByteBuffer buffer, MotionProfile profile) {
+        buffer.putInt(profile.size());
+
+        for (int i = 0; i < profile.size(); i++) {
+            buffer.putDouble(profile.getSpeed(i));
+            buffer.putDouble(profile.getValue(i));
+        }
+    }
+
+    /**
+     * Reads a profile written by writeProfile
+     *
+     * @param buffer Buffer positioned on the profile
+     * @return Motion profile
+     */
+    private static MotionProfile readProfile(ByteBuffer buffer) {
+        int size = buffer.getInt();
+
+        double[] speeds = new double[size];
+        double[] values = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            speeds[i] = buffer.getDouble();
+            values[i] = buffer.getDouble();
+        }
+
+        return new MotionProfile(speeds, values);
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes
+     *
+     * @param buffer Buffer where the string is written
+     * @param value String to write
+     */
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString
+     *
+     * @param buffer Buffer positioned on the string
+     * @return String read
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Joins the tokens of a line from the given one, used for names with spaces
+     *
+     * @param tokens Tokens of the line
+     * @param from First token to join
+     * @return Joined tokens
+     */
+    private static String rest(String[] tokens, int from) {
+        if (from >= tokens.length) {
+            throw new IndexOutOfBoundsException("Missing name");
+        }
+
+        return String.join(" ", Arrays.copyOfRange(tokens, from, tokens.length));
+    }
+
+    /**
+     * Parses a speed
+     *
+     * @param value Speed value
+     * @param unit Name of the speed unit
+     * @return Parsed speed
+     */
+    private static Speed speed(String value, String unit) {
+        return new Speed(Double.parseDouble(value), SpeedUnits.valueOf(unit));
+    }
+
+    /**
+     * Class definition being parsed
+     */
+    private static class Definition {
+        int id;
+        String name;
+        double maxSpeed = -1;
+
+        AccelProfile accel = new AccelProfile();
+        DragProfile drag = new DragProfile();
+        TurnProfile turn = new TurnProfile();
+        TurnProfile dive = new TurnProfile();
+        List<Sensor> sensors = new ArrayList<>();
+
+        /**
+         * Creates a new definition
+         *
+         * @param id Class id
+         * @param name Class name
+         */
+        Definition(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * Builds the class with the properties parsed
+         *
+         * @return Platform class
+         */
+        PlatformClass build() {
+            MotionProfile accelProfile = accel.toMotionProfile();
+            double top = maxSpeed >= 0 ? maxSpeed : accelProfile.getMaxSpeed();
+
+            return new PlatformClass(id, name, top, accelProfile, drag.toMotionProfile(), turn.toMotionProfile(),
+                    dive.toMotionProfile(), sensors);
+        }
+    }
+}
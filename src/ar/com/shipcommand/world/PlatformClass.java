@@ -0,0 +1,159 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.physics.AccelProfile;
+import ar.com.shipcommand.physics.DragProfile;
+import ar.com.shipcommand.physics.MotionProfile;
+import ar.com.shipcommand.physics.TurnProfile;
+import ar.com.shipcommand.world.sensors.Sensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of a class of platforms, like a ship class.
+ *
+ * Holds the motion profiles and the sensors shared by all the platforms of the class, so a fleet of identical
+ * ships keeps a single copy of them. The lookup state used to read the profiles is kept by each platform, which
+ * makes a class safe to share between threads.
+ */
+public class PlatformClass {
+    private int id;
+    private String name;
+    private double maxSpeed;
+
+    private MotionProfile accelProfile;
+    private MotionProfile dragProfile;
+    private MotionProfile turnProfile;
+    private MotionProfile diveProfile;
+
+    private List<Sensor> sensors;
+
+    /**
+     * Creates a new platform class without id, its top speed is the last speed of the acceleration profile
+     *
+     * @param name Name of the class
+     * @param accelProfile Acceleration in meters per second each second by speed at full throttle
+     * @param dragProfile Deceleration in meters per second each second by speed
+     * @param turnProfile Turning rate in radians per second by speed at full rudder
+     * @param diveProfile Diving rate in radians per second by speed at full planes
+     * @param sensors Sensors mounted on the platforms of the class
+     */
+    public PlatformClass(String name, MotionProfile accelProfile, MotionProfile dragProfile,
+                         MotionProfile turnProfile, MotionProfile diveProfile, List<Sensor> sensors) {
+        this(-1, name, accelProfile.getMaxSpeed(), accelProfile, dragProfile, turnProfile, diveProfile, sensors);
+    }
+
+    /**
+     * Creates a new platform class
+     *
+     * @param id Number used by scenarios to reference the class, -1 if it has none
+     * @param name Name of the class
+     * @param maxSpeed Top speed at full throttle in meters per second
+     * @param accelProfile Acceleration in meters per second each second by speed at full throttle
+     * @param dragProfile Deceleration in meters per second each second by speed
+     * @param turnProfile Turning rate in radians per second by speed at full rudder
+     * @param diveProfile Diving rate in radians per second by speed at full planes
+     * @param sensors Sensors mounted on the platforms of the class
+     */
+    public PlatformClass(int id, String name, double maxSpeed, MotionProfile accelProfile,
+                         MotionProfile dragProfile, MotionProfile turnProfile, MotionProfile diveProfile,
+                         List<Sensor> sensors) {
+        this.id = id;
+        this.name = name;
+        this.maxSpeed = maxSpeed;
+        this.accelProfile = accelProfile;
+        this.dragProfile = dragProfile;
+        this.turnProfile = turnProfile;
+        this.diveProfile = diveProfile;
+        this.sensors = Collections.unmodifiableList(new ArrayList<>(sensors));
+    }
+
+    /**
+     * Creates a new platform class from profiles built node by node
+     *
+     * @param name Name of the class
+     * @param accelProfile Acceleration profile at full throttle
+     * @param dragProfile Drag profile
+     * @param turnProfile Turning profile at full rudder
+     * @param diveProfile Diving profile at full planes
+     * @param sensors Sensors mounted on the platforms of the class
+     */
+    public PlatformClass(String name, AccelProfile accelProfile, DragProfile dragProfile,
+                         TurnProfile turnProfile, TurnProfile diveProfile, List<Sensor> sensors) {
+        this(name, accelProfile.toMotionProfile(), dragProfile.toMotionProfile(),
+                turnProfile.toMotionProfile(), diveProfile.toMotionProfile(), sensors);
+    }
+
+    /**
+     * Returns the number used by scenarios to reference the class
+     *
+     * @return Class id, -1 if the class has none
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the class
+     *
+     * @return Class name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the acceleration profile
+     *
+     * @return Acceleration in meters per second each second by speed at full throttle
+     */
+    public MotionProfile getAccelProfile() {
+        return accelProfile;
+    }
+
+    /**
+     * Returns the drag profile
+     *
+     * @return Deceleration in meters per second each second by speed
+     */
+    public MotionProfile getDragProfile() {
+        return dragProfile;
+    }
+
+    /**
+     * Returns the turning profile
+     *
+     * @return Turning rate in radians per second by speed at full rudder
+     */
+    public MotionProfile getTurnProfile() {
+        return turnProfile;
+    }
+
+    /**
+     * Returns the diving profile
+     *
+     * @return Diving rate in radians per second by speed at full planes
+     */
+    public MotionProfile getDiveProfile() {
+        return diveProfile;
+    }
+
+    /**
+     * Returns the sensors mounted on the platforms of the class
+     *
+     * @return Unmodifiable list of sensors
+     */
+    public List<Sensor> getSensors() {
+        return sensors;
+    }
+
+    /**
+     * Returns the top speed of the class
+     *
+     * @return Speed in meters per second at full throttle
+     */
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+}
@@ -0,0 +1,257 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.UpdateScheduler;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Geographic region of a sharded world.
+ *
+ * A shard owns the objects inside its bounds, steps them on its worker thread and keeps them in its own spatial
+ * index. Objects owned by the neighbor shards that are close to its bounds are kept as ghosts on a second index,
+ * so the queries near the borders see them without reaching into the other shards.
+ */
+public class Shard {
+    private int number;
+
+    double minLat;
+    double maxLat;
+    double minLon;
+    double maxLon;
+
+    private SimObject[] objects = new SimObject[64];
+    private long[] ghostMasks = new long[64];
+    private int size = 0;
+    private IdentityHashMap<SimObject, Integer> slots = new IdentityHashMap<>();
+
+    private SpatialIndex index;
+    private SpatialIndex ghosts;
+
+    /**
+     * Objects that left the shard on the last step
+     */
+    SimObject[] emigrants = new SimObject[16];
+    int emigrantCount = 0;
+
+    /**
+     * Objects whose ghost shards changed on the last step, with the old and new sets of shards
+     */
+    SimObject[] ghostChanges = new SimObject[16];
+    long[] ghostChangeOld = new long[16];
+    long[] ghostChangeNew = new long[16];
+    int ghostChangeCount = 0;
+
+    /**
+     * Creates a new shard
+     *
+     * @param number Shard number on its world
+     * @param minLat Southern bound in radians
+     * @param maxLat Northern bound in radians
+     * @param minLon Western bound in radians
+     * @param maxLon Eastern bound in radians
+     * @param cellSize Size of the spatial index cells in degrees
+     */
+    Shard(int number, double minLat, double maxLat, double minLon, double maxLon, double cellSize) {
+        this.number = number;
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+
+        index = new SpatialIndex(cellSize);
+        ghosts = new SpatialIndex(cellSize);
+    }
+
+    /**
+     * Returns the shard number
+     *
+     * @return Shard number
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the number of objects owned by the shard
+     *
+     * @return Number of objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an object owned by the shard
+     *
+     * @param i Object number, from 0 to size - 1
+     * @return Sim object
+     */
+    public SimObject get(int i) {
+        return objects[i];
+    }
+
+    /**
+     * Returns the index of the objects owned by the shard
+     *
+     * @return Spatial index
+     */
+    public SpatialIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the index of the objects of neighbor shards close to this one
+     *
+     * @return Spatial index of ghosts
+     */
+    public SpatialIndex getGhosts() {
+        return ghosts;
+    }
+
+    /**
+     * Returns the bounds of the shard
+     *
+     * @return Southern, northern, western and eastern bounds in degrees
+     */
+    public double[] getBounds() {
+        return new double[] { Math.toDegrees(minLat), Math.toDegrees(maxLat), Math.toDegrees(minLon), Math.toDegrees(maxLon) };
+    }
+
+    /**
+     * Finds the objects of this shard and the ghosts within a distance of a point. Results are complete if the
+     * search radius is not bigger than the ghost width of the world
+     *
+     * @param lat Latitude of the center in radians
+     * @param lon Longitude of the center in radians
+     * @param meters Search radius in meters
+     * @param result List where the objects found are added
+     */
+    public void queryRadius(double lat, double lon, double meters, List<SimObject> result) {
+        index.queryRadius(lat, lon, meters, result);
+        ghosts.queryRadius(lat, lon, meters, result);
+    }
+
+    /**
+     * Adds an object to the shard
+     *
+     * @param object Object to add
+     */
+    void add(SimObject object) {
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+            ghostMasks = Arrays.copyOf(ghostMasks, size * 2);
+        }
+
+        slots.put(object, size);
+        objects[size] = object;
+        ghostMasks[size] = 0;
+        size++;
+
+        index.add(object);
+    }
+
+    /**
+     * Removes an object from the shard
+     *
+     * @param object Object to remove
+     * @return Shards in which the object was a ghost, one bit per shard number
+     */
+    long remove(SimObject object) {
+        Integer slot = slots.remove(object);
+
+        if (slot == null) {
+            return 0;
+        }
+
+        long mask = ghostMasks[slot];
+        int last = --size;
+
+        if (slot != last) {
+            objects[slot] = objects[last];
+            ghostMasks[slot] = ghostMasks[last];
+            slots.put(objects[slot], slot);
+        }
+
+        objects[last] = null;
+        index.remove(object);
+
+        return mask;
+    }
+
+    /**
+     * Steps the objects of the shard and finds the ones that left it
+     *
+     * @param world World the shard belongs to
+     * @param tick Current physics step number
+     * @param dt Time passed since last update
+     */
+    void step(ShardedWorld world, long tick, double dt) {
+        emigrantCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            UpdateScheduler.step(objects[i], tick, dt);
+        }
+
+        for (int i = 0; i < size; i++) {
+            SimObject object = objects[i];
+            KinematicStore store = object.getStore();
+
+            if (world.shardOf(store.lat[object.row], store.lon[object.row]) != this) {
+                if (emigrantCount == emigrants.length) {
+                    emigrants = Arrays.copyOf(emigrants, emigrantCount * 2);
+                }
+
+                emigrants[emigrantCount++] = object;
+            }
+        }
+    }
+
+    /**
+     * Updates the index of the objects and finds the objects that became or stopped being ghosts of other shards
+     *
+     * @param world World the shard belongs to
+     */
+    void updateGhosts(ShardedWorld world) {
+        index.update();
+
+        ghostChangeCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            SimObject object = objects[i];
+            KinematicStore store = object.getStore();
+
+            long mask = world.ghostMask(this, store.lat[object.row], store.lon[object.row]);
+
+            if (mask != ghostMasks[i]) {
+                if (ghostChangeCount == ghostChanges.length) {
+                    ghostChanges = Arrays.copyOf(ghostChanges, ghostChangeCount * 2);
+                    ghostChangeOld = Arrays.copyOf(ghostChangeOld, ghostChangeCount * 2);
+                    ghostChangeNew = Arrays.copyOf(ghostChangeNew, ghostChangeCount * 2);
+                }
+
+                ghostChanges[ghostChangeCount] = object;
+                ghostChangeOld[ghostChangeCount] = ghostMasks[i];
+                ghostChangeNew[ghostChangeCount] = mask;
+                ghostChangeCount++;
+
+                ghostMasks[i] = mask;
+            }
+        }
+    }
+
+    /**
+     * Runs the shard systems after refreshing the ghost positions
+     *
+     * @param systems Systems to run
+     * @param dt Time passed since last update
+     */
+    void interact(List<IShardSystem> systems, double dt) {
+        ghosts.update();
+
+        for (int i = 0; i < systems.size(); i++) {
+            systems.get(i).step(this, dt);
+        }
+    }
+}
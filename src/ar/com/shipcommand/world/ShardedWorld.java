@@ -0,0 +1,473 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.IGameObject;
+import ar.com.shipcommand.physics.geo.GeoConsts;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * World split in geographic shards stepped in parallel, each one on its own worker thread.
+ *
+ * The world is divided in bands of latitude and longitude. Each shard owns the objects inside its bounds, so a
+ * worker only writes the objects of its shard and no locking is needed on the objects themselves. A step runs in
+ * phases separated by barriers:
+ *
+ * - Each shard steps its objects and finds the ones that crossed its bounds.
+ * - The objects that crossed are moved to their new shard, on the thread stepping the world.
+ * - Each shard updates its index and finds which of its objects are within the ghost width of neighbor shards.
+ * - The ghost indexes of the shards are updated with those objects, on the thread stepping the world.
+ * - Each shard runs the shard systems, which can read their own objects and the ghosts but only change their own.
+ *
+ * The world must be added to the game loop as a game object, its objects must not be added to the game loop to be
+ * stepped, they can be registered with GameLoop.addSnapshotable to publish their state. Objects must be added and
+ * removed from the physics thread, between steps.
+ */
+public class ShardedWorld implements IGameObject {
+    /**
+     * Distance from the bounds of a shard in which the objects of the neighbors are kept as ghosts, in meters
+     */
+    private static double DEFAULT_GHOST_WIDTH = 50000;
+    /**
+     * Size of the spatial index cells of each shard, in degrees
+     */
+    private static double CELL_SIZE = 1;
+    /**
+     * Maximum number of shards, a ghost mask has a bit per shard
+     */
+    private static int MAX_SHARDS = 64;
+
+    private static int PHASE_STEP = 0;
+    private static int PHASE_GHOSTS = 1;
+    private static int PHASE_INTERACT = 2;
+    private static int PHASE_STOP = 3;
+
+    private int latBands;
+    private int lonBands;
+    private double latSize;
+    private double lonSize;
+    private double ghostWidth;
+
+    private Shard[] shards;
+    private IdentityHashMap<SimObject, Shard> owners = new IdentityHashMap<>();
+    private List<IShardSystem> systems = new ArrayList<>();
+
+    private Thread[] workers;
+    private CyclicBarrier start;
+    private CyclicBarrier end;
+    private volatile Throwable failure;
+
+    private int phase;
+    private double dt;
+    private double time = 0;
+    private long tick = 0;
+
+    /**
+     * Creates a new sharded world with the default ghost width
+     *
+     * @param latBands Number of latitude bands
+     * @param lonBands Number of longitude bands
+     */
+    public ShardedWorld(int latBands, int lonBands) {
+        this(latBands, lonBands, DEFAULT_GHOST_WIDTH);
+    }
+
+    /**
+     * Creates a new sharded world, there is a shard and a worker thread for each combination of bands
+     *
+     * @param latBands Number of latitude bands
+     * @param lonBands Number of longitude bands
+     * @param ghostWidth Distance in meters from the bounds of a shard in which the objects of neighbor shards are
+     *                   kept as ghosts, it must cover the range of the shard systems
+     */
+    public ShardedWorld(int latBands, int lonBands, double ghostWidth) {
+        if (latBands < 1 || lonBands < 1 || latBands * lonBands > MAX_SHARDS) {
+            throw new IllegalArgumentException("The number of shards must be between 1 and " + MAX_SHARDS);
+        }
+
+        this.latBands = latBands;
+        this.lonBands = lonBands;
+        this.latSize = Math.PI / latBands;
+        this.lonSize = 2 * Math.PI / lonBands;
+        this.ghostWidth = ghostWidth;
+
+        shards = new Shard[latBands * lonBands];
+
+        for (int row = 0; row < latBands; row++) {
+            for (int col = 0; col < lonBands; col++) {
+                int number = row * lonBands + col;
+
+                shards[number] = new Shard(number,
+                        -Math.PI / 2 + row * latSize, -Math.PI / 2 + (row + 1) * latSize,
+                        -Math.PI + col * lonSize, -Math.PI + (col + 1) * lonSize, CELL_SIZE);
+            }
+        }
+
+        start = new CyclicBarrier(shards.length + 1);
+        end = new CyclicBarrier(shards.length + 1);
+
+        workers = new Thread[shards.length];
+
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+
+            workers[i] = new Thread(() -> work(shard), "Shard " + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Returns the number of shards
+     *
+     * @return Number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns a shard
+     *
+     * @param number Shard number
+     * @return Shard
+     */
+    public Shard getShard(int number) {
+        return shards[number];
+    }
+
+    /**
+     * Returns the shard owning an object
+     *
+     * @param object Sim object
+     * @return Shard or null if the object is not in the world
+     */
+    public Shard getOwner(SimObject object) {
+        return owners.get(object);
+    }
+
+    /**
+     * Returns the number of objects in the world
+     *
+     * @return Number of objects
+     */
+    public int size() {
+        return owners.size();
+    }
+
+    /**
+     * Returns the time simulated by the world, during a step the time at its end
+     *
+     * @return Time in seconds
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Adds a system run over every shard on each step
+     *
+     * @param system System to add
+     */
+    public void addSystem(IShardSystem system) {
+        systems.add(system);
+    }
+
+    /**
+     * Removes a shard system
+     *
+     * @param system System to remove
+     */
+    public void removeSystem(IShardSystem system) {
+        systems.remove(system);
+    }
+
+    /**
+     * Adds an object to the shard containing its position
+     *
+     * @param object Object to add
+     */
+    public void add(SimObject object) {
+        if (owners.containsKey(object)) {
+            return;
+        }
+
+        KinematicStore store = object.getStore();
+        Shard shard = shardOf(store.lat[object.row], store.lon[object.row]);
+
+        shard.add(object);
+        owners.put(object, shard);
+    }
+
+    /**
+     * Removes an object from the world
+     *
+     * @param object Object to remove
+     */
+    public void remove(SimObject object) {
+        Shard shard = owners.remove(object);
+
+        if (shard != null) {
+            removeGhosts(object, shard.remove(object));
+        }
+    }
+
+    /**
+     * Runs a step of all the shards
+     *
+     * @param dt Time passed since last update
+     */
+    public void timeStep(double dt) {
+        this.dt = dt;
+        this.time += dt;
+
+        run(PHASE_STEP);
+        migrate();
+
+        run(PHASE_GHOSTS);
+        applyGhosts();
+
+        run(PHASE_INTERACT);
+
+        tick++;
+    }
+
+    /**
+     * Stops the worker threads, the world can't be stepped after this
+     */
+    public void shutdown() {
+        phase = PHASE_STOP;
+
+        try {
+            start.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the shard containing a position
+     *
+     * @param lat Latitude in radians
+     * @param lon Longitude in radians
+     * @return Shard
+     */
+    Shard shardOf(double lat, double lon) {
+        int row = Math.max(0, Math.min(latBands - 1, (int) ((lat + Math.PI / 2) / latSize)));
+        int col = Math.max(0, Math.min(lonBands - 1, (int) ((lon + Math.PI) / lonSize)));
+
+        return shards[row * lonBands + col];
+    }
+
+    /**
+     * Returns the shards, other than the owner, whose bounds are within the ghost width of a position
+     *
+     * @param owner Shard owning the object
+     * @param lat Latitude in radians
+     * @param lon Longitude in radians
+     * @return Shards found, one bit per shard number
+     */
+    long ghostMask(Shard owner, double lat, double lon) {
+        // Angular width of the ghost zone
+        double δ = ghostWidth / GeoConsts.EARTH_RADIUS;
+
+        if (δ <= 0 || shards.length == 1) {
+            return 0;
+        }
+
+        int firstRow = Math.max(0, (int) ((lat - δ + Math.PI / 2) / latSize));
+        int lastRow = Math.min(latBands - 1, (int) ((lat + δ + Math.PI / 2) / latSize));
+
+        int firstCol;
+        int colCount;
+
+        if (Math.abs(lat) + δ >= Math.PI / 2 || lonBands < 3) {
+            // Near the poles every longitude is close
+            firstCol = 0;
+            colCount = lonBands;
+        } else {
+            double Δλ = Math.asin(Math.min(1, Math.sin(δ) / Math.cos(lat)));
+
+            firstCol = (int) Math.floor((lon - Δλ + Math.PI) / lonSize);
+            colCount = Math.min(lonBands, (int) Math.floor((lon + Δλ + Math.PI) / lonSize) - firstCol + 1);
+        }
+
+        long mask = 0;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int c = 0; c < colCount; c++) {
+                int col = ((firstCol + c) % lonBands + lonBands) % lonBands;
+                Shard shard = shards[row * lonBands + col];
+
+                if (shard != owner && isNear(shard, lat, lon)) {
+                    mask |= 1L << shard.getNumber();
+                }
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Returns if a position is within the ghost width of the bounds of a shard
+     *
+     * @param shard Shard
+     * @param lat Latitude in radians
+     * @param lon Longitude in radians
+     * @return True if the position is close to the shard
+     */
+    private boolean isNear(Shard shard, double lat, double lon) {
+        double latDistance = Math.max(0, Math.max(shard.minLat - lat, lat - shard.maxLat)) * GeoConsts.EARTH_RADIUS;
+
+        if (latDistance > ghostWidth) {
+            return false;
+        }
+
+        if (lon >= shard.minLon && lon < shard.maxLon) {
+            return true;
+        }
+
+        // Longitude difference to the closest meridian bounding the shard
+        double Δλ = Math.min(angle(lon, shard.minLon), angle(lon, shard.maxLon));
+        double lonDistance = Math.asin(Math.sin(Math.min(Δλ, Math.PI / 2)) * Math.cos(lat)) * GeoConsts.EARTH_RADIUS;
+
+        return lonDistance <= ghostWidth;
+    }
+
+    /**
+     * Returns the absolute difference between two longitudes
+     *
+     * @param a Longitude in radians
+     * @param b Longitude in radians
+     * @return Difference in radians, 0 to π
+     */
+    private static double angle(double a, double b) {
+        double Δ = Math.abs(a - b) % (2 * Math.PI);
+        return Δ > Math.PI ? 2 * Math.PI - Δ : Δ;
+    }
+
+    /**
+     * Moves the objects that left their shards to the shard containing them
+     */
+    private void migrate() {
+        for (Shard shard : shards) {
+            for (int i = 0; i < shard.emigrantCount; i++) {
+                SimObject object = shard.emigrants[i];
+                KinematicStore store = object.getStore();
+                Shard target = shardOf(store.lat[object.row], store.lon[object.row]);
+
+                removeGhosts(object, shard.remove(object));
+
+                target.add(object);
+                owners.put(object, target);
+
+                shard.emigrants[i] = null;
+            }
+
+            shard.emigrantCount = 0;
+        }
+    }
+
+    /**
+     * Adds and removes the objects from the ghost indexes as found on the ghosts phase
+     */
+    private void applyGhosts() {
+        for (Shard shard : shards) {
+            for (int i = 0; i < shard.ghostChangeCount; i++) {
+                SimObject object = shard.ghostChanges[i];
+                long before = shard.ghostChangeOld[i];
+                long after = shard.ghostChangeNew[i];
+
+                removeGhosts(object, before & ~after);
+
+                long added = after & ~before;
+
+                while (added != 0) {
+                    int number = Long.numberOfTrailingZeros(added);
+                    shards[number].getGhosts().add(object);
+                    added &= added - 1;
+                }
+
+                shard.ghostChanges[i] = null;
+            }
+
+            shard.ghostChangeCount = 0;
+        }
+    }
+
+    /**
+     * Removes an object from the ghost indexes of some shards
+     *
+     * @param object Object to remove
+     * @param mask Shards to remove it from, one bit per shard number
+     */
+    private void removeGhosts(SimObject object, long mask) {
+        while (mask != 0) {
+            int number = Long.numberOfTrailingZeros(mask);
+            shards[number].getGhosts().remove(object);
+            mask &= mask - 1;
+        }
+    }
+
+    /**
+     * Runs a phase on all the shards and waits for them to complete it
+     *
+     * @param phase Phase to run
+     */
+    private void run(int phase) {
+        this.phase = phase;
+
+        try {
+            start.await();
+            end.await();
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new IllegalStateException("Shard workers stopped", e);
+        }
+
+        if (failure != null) {
+            Throwable error = failure;
+            failure = null;
+
+            throw new IllegalStateException("Shard step failed", error);
+        }
+    }
+
+    /**
+     * Loop of the worker thread of a shard, the barriers make the phase and the objects written by the other
+     * threads visible to it
+     *
+     * @param shard Shard owned by the worker
+     */
+    private void work(Shard shard) {
+        try {
+            while (true) {
+                start.await();
+
+                int current = phase;
+
+                if (current == PHASE_STOP) {
+                    return;
+                }
+
+                try {
+                    if (current == PHASE_STEP) {
+                        shard.step(this, tick, dt);
+                    } else if (current == PHASE_GHOSTS) {
+                        shard.updateGhosts(this);
+                    } else if (current == PHASE_INTERACT) {
+                        shard.interact(systems, dt);
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+
+                end.await();
+            }
+        } catch (InterruptedException | BrokenBarrierException e) {
+            e.printStackTrace();
+        }
+    }
+}
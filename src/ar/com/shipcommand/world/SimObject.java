@@ -1,22 +1,55 @@
 package ar.com.shipcommand.world;
 
-import ar.com.shipcommand.main.IGameObject;
-import ar.com.shipcommand.physics.magnitudes.Distance;
+import ar.com.shipcommand.main.IConcurrentGameObject;
+import ar.com.shipcommand.main.IPoolable;
+import ar.com.shipcommand.main.IScheduledGameObject;
+import ar.com.shipcommand.main.ISnapshotable;
+import ar.com.shipcommand.main.UpdateSchedule;
+import ar.com.shipcommand.main.UpdateTier;
 import ar.com.shipcommand.physics.magnitudes.Speed;
 import ar.com.shipcommand.physics.geo.Geo3DPosition;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents an object in the simulation world.
  *
  * It has a definite position and state (velocity and acceleration)
- * It inherits from game objects and on each time step it integrates the new position
+ * It inherits from game objects and on each time step it integrates the new position.
+ * The time step only changes the object's own state so sim objects can be stepped concurrently, subclasses
+ * overriding it must keep that contract.
+ * When an area of interest is set, objects far from it or not maneuvering are updated less often and integrate the
+ * whole elapsed time at once.
+ *
+ * The kinematic state is kept on a row of a KinematicStore, the object is a view over that row. By default objects
+ * share the store returned by KinematicStore.getShared, objects sharing a store in batch mode are integrated all at
+ * once by the store. Objects removed from the game loop and not pooled move to a store of their own, detached from
+ * the shared one, so their rows are not left behind.
+ * The position and speed objects returned by the getters are refreshed from the row on each call, changing them
+ * doesn't change the object, the setters must be used instead.
+ *
+ * Objects created by a SimObjectPool are returned to it when removed from the game loop. A pooled object is reset
+ * and activated when handed out and deactivated when returned, subclasses can override those hooks to clear their
+ * own state and to join or leave other systems like the detection engine.
  */
-public abstract class SimObject implements IGameObject {
+public abstract class SimObject implements IConcurrentGameObject, IScheduledGameObject, ISnapshotable<SimObjectState>, IPoolable {
+    /**
+     * Size in bytes of the kinematic state written on checkpoints
+     */
+    private static int CHECKPOINT_SIZE = 9 * 8;
+
+    /**
+     * Id assigned to the next object created
+     */
+    private static AtomicLong nextId = new AtomicLong(1);
+
+    private long id;
+
+    private KinematicStore store;
+    int row;
+
     private Geo3DPosition position;
-    private double course;
-    private double diveAngle;
-    private double turningSpeed;
-    private double divingSpeed;
 
     private Speed speed;
     private Speed acceleration;
@@ -24,15 +57,33 @@ public abstract class SimObject implements IGameObject {
     private Speed verticalSpeed;
     private Speed horizontalSpeed;
 
+    private UpdateSchedule schedule;
+
+    /**
+     * Pool the object belongs to, null if not pooled
+     */
+    SimObjectPool<?> pool;
+    boolean pooled = false;
+
     /**
      * Creates a new sim object on the default position
      */
     public SimObject() {
+        this(KinematicStore.getShared());
+    }
+
+    /**
+     * Creates a new sim object on the default position with its state on the given store
+     *
+     * @param store Store holding the object's kinematic state
+     */
+    public SimObject(KinematicStore store) {
+        this.id = nextId.getAndIncrement();
+        this.schedule = new UpdateSchedule(id);
+        this.store = store;
+        this.row = store.allocate(this);
+
         position = new Geo3DPosition();
-        course = 0.0;
-        diveAngle = 0.0;
-        turningSpeed = 0.0;
-        divingSpeed = 0.0;
 
         speed = new Speed();
         acceleration = new Speed();
@@ -53,18 +104,15 @@ public abstract class SimObject implements IGameObject {
      * @param acceleration Object's acceleration
      */
     public SimObject(Geo3DPosition position, double course, double diveAngle, double turningSpeed, double divingSpeed, Speed speed, Speed acceleration) {
-        this.position = position;
-        this.course = course;
-        this.diveAngle = diveAngle;
-        this.turningSpeed = turningSpeed;
-        this.divingSpeed = divingSpeed;
+        this();
 
-        this.speed = speed;
-        this.acceleration = acceleration;
-
-        horizontalSpeed = new Speed();
-        verticalSpeed = new Speed();
-        updateDerivedParameters();
+        setPosition(position);
+        setCourse(course);
+        setDiveAngle(diveAngle);
+        setTurningSpeed(turningSpeed);
+        setDivingSpeed(divingSpeed);
+        setSpeed(speed);
+        setAcceleration(acceleration);
     }
 
     /**
@@ -73,47 +121,235 @@ public abstract class SimObject implements IGameObject {
      * @param dt Time passed since last update
      */
     public void timeStep(double dt) {
-        // Change the speed given the acceleration
-        double speedMs = speed.inMetersPerSecond();
-        speedMs += acceleration.inMetersPerSecond() * dt;
-        speed.setMetersPerSecond(speedMs);
+        // Objects on a batch store are integrated by the store
+        if (!store.isBatch()) {
+            store.integrate(row, row + 1, dt);
+        }
+    }
+
+    /**
+     * Returns the object's id, unique during the simulation and kept on checkpoints
+     *
+     * @return Object's id
+     */
+    public long getId() {
+        return id;
+    }
 
-        // Change course given the current turning speed in degrees per minute
-        setCourse((turningSpeed / 60) * dt);
+    /**
+     * Sets the object's id, used when the object is restored from a checkpoint
+     *
+     * @param id Object's id
+     */
+    void setId(long id) {
+        this.id = id;
+        schedule.setKey(id);
 
-        // Change the dive angle given the current diving speed
-        setDiveAngle((divingSpeed / 60) * dt);
+        // Ids given to new objects must not collide with the restored ones
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
 
-        // Update derived parameters
-        updateDerivedParameters();
+    /**
+     * Returns the pool the object belongs to
+     *
+     * @return Object's pool, null if not pooled
+     */
+    public SimObjectPool<?> getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the object to its pool, called by the game loop once the object was removed. Objects not pooled leave
+     * the shared store
+     */
+    public void recycle() {
+        if (pool != null) {
+            pool.recycle(this);
+        } else {
+            KinematicStore.getShared().remove(this);
+        }
+    }
+
+    /**
+     * Clears the object's state before it's handed out by its pool. The object gets a new id and is left at the
+     * default position, stopped. Subclasses must call this method when overriding it
+     */
+    protected void reset() {
+        id = nextId.getAndIncrement();
+
+        store.lat[row] = 0;
+        store.lon[row] = 0;
+        store.altitude[row] = 0;
+        store.course[row] = 0;
+        store.diveAngle[row] = 0;
+        store.speed[row] = 0;
+        store.acceleration[row] = 0;
+        store.turnRate[row] = 0;
+        store.diveRate[row] = 0;
 
-        // Get the distance traveled on the time step
-        Distance traveled = new Distance(horizontalSpeed.inMetersPerSecond() * dt);
-        // Move the current position the specified distance on the present course
-        position.move(traveled, course);
+        schedule.reset();
+        schedule.setKey(id);
+    }
+
+    /**
+     * Called after the object is reset and handed out by its pool
+     */
+    protected void activate() {
+    }
+
+    /**
+     * Called when the object is returned to its pool
+     */
+    protected void deactivate() {
+    }
+
+    /**
+     * Returns the number of bytes written by writeCheckpoint
+     *
+     * @return Size in bytes
+     */
+    protected int getCheckpointSize() {
+        return CHECKPOINT_SIZE;
+    }
+
+    /**
+     * Returns the id of the object's variant written on checkpoints, used to create the object when it's missing on
+     * a restore
+     *
+     * @return Variant id, -1 if the object has no variants
+     */
+    protected int getCheckpointVariantId() {
+        return -1;
+    }
+
+    /**
+     * Returns the name of the object's variant written on checkpoints, used to create the object when it's missing
+     * on a restore
+     *
+     * @return Variant name, null if the object has no variants
+     */
+    protected String getCheckpointVariantName() {
+        return null;
+    }
 
-        // Get the current altitude in meters
-        Distance altitude = position.getAltitude();
-        // Add the climbed meters to the current altitude
-        altitude.setMeters(altitude.inMeters() + (verticalSpeed.inMetersPerSecond() * dt));
+    /**
+     * Writes the object's state to a checkpoint. Subclasses with state of their own must write it after the
+     * state of their parent class and add its size to getCheckpointSize
+     *
+     * @param buffer Buffer where the state is written
+     */
+    protected void writeCheckpoint(ByteBuffer buffer) {
+        buffer.putDouble(store.lat[row]);
+        buffer.putDouble(store.lon[row]);
+        buffer.putDouble(store.altitude[row]);
+        buffer.putDouble(store.course[row]);
+        buffer.putDouble(store.diveAngle[row]);
+        buffer.putDouble(store.speed[row]);
+        buffer.putDouble(store.acceleration[row]);
+        buffer.putDouble(store.turnRate[row]);
+        buffer.putDouble(store.diveRate[row]);
+    }
+
+    /**
+     * Reads the object's state from a checkpoint written by writeCheckpoint
+     *
+     * @param buffer Buffer positioned on the object's state
+     */
+    protected void readCheckpoint(ByteBuffer buffer) {
+        store.lat[row] = buffer.getDouble();
+        store.lon[row] = buffer.getDouble();
+        store.altitude[row] = buffer.getDouble();
+        store.course[row] = buffer.getDouble();
+        store.diveAngle[row] = buffer.getDouble();
+        store.speed[row] = buffer.getDouble();
+        store.acceleration[row] = buffer.getDouble();
+        store.turnRate[row] = buffer.getDouble();
+        store.diveRate[row] = buffer.getDouble();
+
+        schedule.promote();
+    }
+
+    /**
+     * Returns the store holding the object's kinematic state
+     *
+     * @return Kinematic store
+     */
+    public KinematicStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the row of the store holding the object's kinematic state, it can change when other objects leave
+     * the store
+     *
+     * @return Row number
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Moves the object's kinematic state to a row of the given store
+     *
+     * @param target Store where the state must be moved
+     */
+    void moveTo(KinematicStore target) {
+        if (target == store) {
+            return;
+        }
+
+        int newRow = target.allocate(this);
+        target.copyRow(store, row, newRow);
+
+        store.release(row);
+
+        store = target;
+        row = newRow;
     }
 
     /**
      * Gets the current position of the object
      *
-     * @return Object's position
+     * @return Object's position, changes to it are not applied to the object
      */
     public Geo3DPosition getPosition() {
+        position.setPostionRadians(store.lat[row], store.lon[row]);
+        position.getAltitude().setMeters(store.altitude[row]);
+
         return position;
     }
 
+    /**
+     * Sets the current position of the object
+     *
+     * @param position New position
+     */
+    public void setPosition(Geo3DPosition position) {
+        store.lat[row] = position.getLatRadians();
+        store.lon[row] = KinematicStore.normalizeLongitude(position.getLonRadians());
+        store.altitude[row] = position.getAltitude().inMeters();
+    }
+
+    /**
+     * Sets the current position of the object
+     *
+     * @param lat Decimal latitude
+     * @param lon Decimal longitude
+     * @param altitude Altitude in meters
+     */
+    public void setPosition(double lat, double lon, double altitude) {
+        store.lat[row] = Math.toRadians(lat);
+        store.lon[row] = KinematicStore.normalizeLongitude(Math.toRadians(lon));
+        store.altitude[row] = altitude;
+    }
+
     /**
      * Gets the object's current course
      *
      * @return Degrees from north
      */
     public double getCourse() {
-        return course;
+        return Math.toDegrees(store.course[row]);
     }
 
     /**
@@ -122,7 +358,7 @@ public abstract class SimObject implements IGameObject {
      * @param course Degrees from north
      */
     public void setCourse(double course) {
-        this.course = course;
+        store.course[row] = KinematicStore.normalizeCourse(Math.toRadians(course));
     }
 
     /**
@@ -131,7 +367,7 @@ public abstract class SimObject implements IGameObject {
      * @return Dive angle in degrees
      */
     public double getDiveAngle() {
-        return diveAngle;
+        return Math.toDegrees(store.diveAngle[row]);
     }
 
     /**
@@ -142,7 +378,7 @@ public abstract class SimObject implements IGameObject {
     public void setDiveAngle(double diveAngle) {
         if (diveAngle > 90) diveAngle = 90;
         if (diveAngle < -90) diveAngle = -90;
-        this.diveAngle = diveAngle;
+        store.diveAngle[row] = Math.toRadians(diveAngle);
     }
 
     /**
@@ -151,7 +387,7 @@ public abstract class SimObject implements IGameObject {
      * @return Current turning speed in degrees per minute
      */
     public double getTurningSpeed() {
-        return turningSpeed;
+        return Math.toDegrees(store.turnRate[row]) * 60;
     }
 
     /**
@@ -160,7 +396,16 @@ public abstract class SimObject implements IGameObject {
      * @param turningSpeed Turning speed in degrees per minute
      */
     public void setTurningSpeed(double turningSpeed) {
-        this.turningSpeed = turningSpeed;
+        store.turnRate[row] = Math.toRadians(turningSpeed / 60);
+    }
+
+    /**
+     * Sets the current turning speed of the object
+     *
+     * @param rate Turning speed in radians per second
+     */
+    public void setTurningSpeedRadiansPerSecond(double rate) {
+        store.turnRate[row] = rate;
     }
 
     /**
@@ -169,7 +414,7 @@ public abstract class SimObject implements IGameObject {
      * @return Degrees per minute
      */
     public double getDivingSpeed() {
-        return divingSpeed;
+        return Math.toDegrees(store.diveRate[row]) * 60;
     }
 
     /**
@@ -178,25 +423,90 @@ public abstract class SimObject implements IGameObject {
      * @param divingSpeed Degrees per minute
      */
     public void setDivingSpeed(double divingSpeed) {
-        this.divingSpeed = divingSpeed;
+        store.diveRate[row] = Math.toRadians(divingSpeed / 60);
+    }
+
+    /**
+     * Sets the object's rate of change in the diving angle
+     *
+     * @param rate Radians per second
+     */
+    public void setDivingSpeedRadiansPerSecond(double rate) {
+        store.diveRate[row] = rate;
     }
 
     /**
      * Gets the object's current speed
      *
-     * @return Object's speed
+     * @return Object's speed, changes to it are not applied to the object
      */
     public Speed getSpeed() {
+        speed.setMetersPerSecond(store.speed[row]);
         return speed;
     }
 
+    /**
+     * Sets the object's current speed
+     *
+     * @param speed Object's speed
+     */
+    public void setSpeed(Speed speed) {
+        store.speed[row] = speed.inMetersPerSecond();
+    }
+
+    /**
+     * Gets the object's current speed
+     *
+     * @return Speed in meters per second
+     */
+    public double getSpeedMetersPerSecond() {
+        return store.speed[row];
+    }
+
+    /**
+     * Sets the object's current speed
+     *
+     * @param ms Speed in meters per second
+     */
+    public void setSpeedMetersPerSecond(double ms) {
+        store.speed[row] = ms;
+    }
+
     /**
      * Gets the object's acceleration
      *
-     * @return Object's acceleration
+     * @return Object's acceleration in meters per second each second, changes to it are not applied to the object
      */
     public Speed getAcceleration() {
-        return horizontalSpeed;
+        acceleration.setMetersPerSecond(store.acceleration[row]);
+        return acceleration;
+    }
+
+    /**
+     * Sets the object's acceleration
+     *
+     * @param acceleration Object's acceleration in meters per second each second
+     */
+    public void setAcceleration(Speed acceleration) {
+        store.acceleration[row] = acceleration.inMetersPerSecond();
+    }
+
+    /**
+     * Gets the object's acceleration
+     *
+     * @return Acceleration in meters per second each second
+     */
+    public double getAccelerationMetersPerSecond() {
+        return store.acceleration[row];
+    }
+
+    /**
+     * Sets the object's acceleration
+     *
+     * @param accel Acceleration in meters per second each second
+     */
+    public void setAccelerationMetersPerSecond(double accel) {
+        store.acceleration[row] = accel;
     }
 
     /**
@@ -205,6 +515,7 @@ public abstract class SimObject implements IGameObject {
      * @return Object's horizontal speed
      */
     public Speed getHorizontalSpeed() {
+        updateDerivedParameters();
         return horizontalSpeed;
     }
 
@@ -214,15 +525,89 @@ public abstract class SimObject implements IGameObject {
      * @return Object's vertical speed
      */
     public Speed getVerticalSpeed() {
+        updateDerivedParameters();
         return verticalSpeed;
     }
 
+    /**
+     * Gets the object's update schedule
+     *
+     * @return Update schedule
+     */
+    public UpdateSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Returns the tier in which the object must be updated given its distance to the area of interest and if it's
+     * maneuvering
+     *
+     * @return Update tier
+     */
+    public UpdateTier getUpdateTier() {
+        AreaOfInterest area = AreaOfInterest.getCurrent();
+
+        if (area == null) {
+            return UpdateTier.Full;
+        }
+
+        return area.getTier(getPosition(), isManeuvering());
+    }
+
+    /**
+     * Returns if the object is changing its speed, course or dive angle
+     *
+     * @return True if maneuvering
+     */
+    public boolean isManeuvering() {
+        return store.turnRate[row] != 0 || store.diveRate[row] != 0 || store.acceleration[row] != 0;
+    }
+
+    /**
+     * Returns if the object is moving at constant speed and dive angle, in which case its turning rate doesn't
+     * change either until its controls do. Objects on a batch store are integrated by the store on every step so
+     * they are never steady
+     *
+     * @return True if steady
+     */
+    public boolean isSteady() {
+        return store.acceleration[row] == 0 && store.diveRate[row] == 0 && !store.isBatch();
+    }
+
+    /**
+     * Creates an empty state object for this sim object
+     *
+     * @return New state object
+     */
+    public SimObjectState createState() {
+        return new SimObjectState();
+    }
+
+    /**
+     * Copies the current state of the sim object to the given state object
+     *
+     * @param state State object to write
+     */
+    public void writeState(SimObjectState state) {
+        double ms = store.speed[row];
+        double angle = store.diveAngle[row];
+
+        state.lat = Math.toDegrees(store.lat[row]);
+        state.lon = Math.toDegrees(store.lon[row]);
+        state.altitude = store.altitude[row];
+        state.course = Math.toDegrees(store.course[row]);
+        state.diveAngle = Math.toDegrees(angle);
+        state.speed = ms;
+        state.horizontalSpeed = ms * Math.cos(angle);
+        state.verticalSpeed = ms * Math.sin(angle);
+    }
+
     /**
      * Updates derived parameters like horizontal and vertical speed
      */
     protected void updateDerivedParameters() {
-        double ms = speed.inMetersPerSecond();
-        double angle = Math.toRadians(diveAngle);
+        double ms = store.speed[row];
+        double angle = store.diveAngle[row];
 
         verticalSpeed.setMetersPerSecond(ms * Math.sin(angle));
         horizontalSpeed.setMetersPerSecond(ms * Math.cos(angle));
@@ -0,0 +1,185 @@
+package ar.com.shipcommand.world;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Pool of reusable sim objects of a type.
+ *
+ * Objects are handed out by acquire, reset and activated, and must be added to the game loop by the caller. When
+ * they are removed from the game loop they return to the pool on their own once the removal is applied, so the
+ * objects of short lived entities like weapons and decoys are created once and reused from there on.
+ *
+ * Objects must be acquired from the physics thread or before the game is started, they are returned from the
+ * physics thread.
+ *
+ * @param <T> Type of the pooled objects
+ */
+public class SimObjectPool<T extends SimObject> {
+    private Supplier<T> factory;
+
+    private SimObject[] free;
+    private int freeCount = 0;
+
+    private long created = 0;
+    private long acquired = 0;
+    private long released = 0;
+    private int peakActive = 0;
+
+    /**
+     * Creates a new empty pool
+     *
+     * @param factory Creates new objects when the pool is empty
+     */
+    public SimObjectPool(Supplier<T> factory) {
+        this(factory, 0);
+    }
+
+    /**
+     * Creates a new pool with some objects already created
+     *
+     * @param factory Creates new objects when the pool is empty
+     * @param size Number of objects to create
+     */
+    public SimObjectPool(Supplier<T> factory, int size) {
+        this.factory = factory;
+        this.free = new SimObject[Math.max(16, size)];
+
+        preallocate(size);
+    }
+
+    /**
+     * Creates objects until the given number are free on the pool
+     *
+     * @param size Number of free objects
+     */
+    public void preallocate(int size) {
+        while (freeCount < size) {
+            push(create());
+        }
+    }
+
+    /**
+     * Hands out an object from the pool, creating it if the pool is empty. The object is reset and activated
+     *
+     * @return Object ready to be added to the game loop
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        SimObject object;
+
+        if (freeCount > 0) {
+            object = free[--freeCount];
+            free[freeCount] = null;
+        } else {
+            object = create();
+        }
+
+        object.pooled = false;
+        object.reset();
+        object.activate();
+
+        acquired++;
+        peakActive = Math.max(peakActive, getActive());
+
+        return (T) object;
+    }
+
+    /**
+     * Returns an object to the pool, called when the object is recycled by the game loop
+     *
+     * @param object Object to return
+     */
+    void recycle(SimObject object) {
+        if (object.pooled || object.pool != this) {
+            return;
+        }
+
+        object.deactivate();
+        push(object);
+
+        released++;
+    }
+
+    /**
+     * Returns the number of objects created by the pool
+     *
+     * @return Number of objects created
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns the number of objects handed out by the pool
+     *
+     * @return Number of acquisitions
+     */
+    public long getAcquired() {
+        return acquired;
+    }
+
+    /**
+     * Returns the number of objects returned to the pool
+     *
+     * @return Number of releases
+     */
+    public long getReleased() {
+        return released;
+    }
+
+    /**
+     * Returns the number of objects handed out and not yet returned
+     *
+     * @return Number of objects in use
+     */
+    public int getActive() {
+        return (int) (created - freeCount);
+    }
+
+    /**
+     * Returns the highest number of objects in use at the same time
+     *
+     * @return Peak number of objects in use
+     */
+    public int getPeakActive() {
+        return peakActive;
+    }
+
+    /**
+     * Returns the number of objects waiting on the pool
+     *
+     * @return Number of free objects
+     */
+    public int getFree() {
+        return freeCount;
+    }
+
+    /**
+     * Creates a new object for the pool
+     *
+     * @return New object
+     */
+    private SimObject create() {
+        SimObject object = factory.get();
+        object.pool = this;
+
+        created++;
+
+        return object;
+    }
+
+    /**
+     * Adds an object to the free ones
+     *
+     * @param object Free object
+     */
+    private void push(SimObject object) {
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+
+        object.pooled = true;
+        free[freeCount++] = object;
+    }
+}
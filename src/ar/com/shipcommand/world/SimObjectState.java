@@ -0,0 +1,87 @@
+package ar.com.shipcommand.world;
+
+/**
+ * Copy of the state of a sim object published at the end of a physics step
+ */
+public class SimObjectState {
+    double lat;
+    double lon;
+    double altitude;
+    double course;
+    double diveAngle;
+    double speed;
+    double horizontalSpeed;
+    double verticalSpeed;
+
+    /**
+     * Gets the latitude of the object
+     *
+     * @return Decimal latitude
+     */
+    public double getLat() {
+        return lat;
+    }
+
+    /**
+     * Gets the longitude of the object
+     *
+     * @return Decimal longitude
+     */
+    public double getLon() {
+        return lon;
+    }
+
+    /**
+     * Gets the altitude of the object
+     *
+     * @return Altitude in meters
+     */
+    public double getAltitude() {
+        return altitude;
+    }
+
+    /**
+     * Gets the course of the object
+     *
+     * @return Degrees from north
+     */
+    public double getCourse() {
+        return course;
+    }
+
+    /**
+     * Gets the dive angle of the object
+     *
+     * @return Dive angle in degrees
+     */
+    public double getDiveAngle() {
+        return diveAngle;
+    }
+
+    /**
+     * Gets the speed of the object
+     *
+     * @return Speed in meters per second
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Gets the horizontal speed of the object
+     *
+     * @return Horizontal speed in meters per second
+     */
+    public double getHorizontalSpeed() {
+        return horizontalSpeed;
+    }
+
+    /**
+     * Gets the vertical speed of the object
+     *
+     * @return Vertical speed in meters per second
+     */
+    public double getVerticalSpeed() {
+        return verticalSpeed;
+    }
+}
@@ -0,0 +1,510 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.IGameObject;
+import ar.com.shipcommand.physics.geo.GeoConsts;
+import ar.com.shipcommand.physics.geo.GeoTools;
+import ar.com.shipcommand.physics.geo.Geo2DPosition;
+import ar.com.shipcommand.physics.magnitudes.Distance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Grid of latitude / longitude cells used to find the sim objects near a point.
+ *
+ * Each object is linked in the list of the cell containing it. The index is updated when stepped, only objects
+ * that moved to another cell are relinked, so it must be added to the game loop as a system. Longitudes wrap around
+ * the antimeridian and the queries near the poles search all longitudes.
+ *
+ * The index is not thread safe. Objects must be added and removed from the physics thread, queries can be run from
+ * the game objects time steps as long as they don't run at the same time as the index update.
+ */
+public class SpatialIndex implements IGameObject {
+    /**
+     * Size of the cells used when not specified, in degrees
+     */
+    private static double DEFAULT_CELL_SIZE = 1;
+    /**
+     * Value used to mark the end of a cell list
+     */
+    private static int NONE = -1;
+
+    private double cellSize;
+    private int rows;
+    private int cols;
+
+    /**
+     * First slot of each cell list
+     */
+    private int[] heads;
+
+    private SimObject[] objects;
+    private int[] cells;
+    private int[] next;
+    private int[] prev;
+    private int size = 0;
+
+    private IdentityHashMap<SimObject, Integer> slots;
+
+    /**
+     * Creates a new index with cells of the default size
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates a new index
+     *
+     * @param cellSize Size of the cells in degrees, a divisor of 180 no smaller than 0.1 is recommended
+     */
+    public SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+
+        rows = (int) Math.ceil(180 / cellSize);
+        cols = (int) Math.ceil(360 / cellSize);
+
+        heads = new int[rows * cols];
+        Arrays.fill(heads, NONE);
+
+        objects = new SimObject[64];
+        cells = new int[64];
+        next = new int[64];
+        prev = new int[64];
+
+        slots = new IdentityHashMap<>();
+    }
+
+    /**
+     * Returns the size of the cells
+     *
+     * @return Cell size in degrees
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Returns the number of objects in the index
+     *
+     * @return Number of objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an object to the index
+     *
+     * @param object Object to add
+     */
+    public void add(SimObject object) {
+        if (slots.containsKey(object)) {
+            return;
+        }
+
+        if (size == objects.length) {
+            int capacity = size * 2;
+
+            objects = Arrays.copyOf(objects, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+
+        int slot = size++;
+
+        objects[slot] = object;
+        slots.put(object, slot);
+
+        link(slot, cellOf(object));
+    }
+
+    /**
+     * Removes an object from the index
+     *
+     * @param object Object to remove
+     */
+    public void remove(SimObject object) {
+        Integer slot = slots.remove(object);
+
+        if (slot == null) {
+            return;
+        }
+
+        unlink(slot);
+
+        // Move the last slot to the removed one
+        int last = --size;
+
+        if (slot != last) {
+            objects[slot] = objects[last];
+            cells[slot] = cells[last];
+            next[slot] = next[last];
+            prev[slot] = prev[last];
+
+            if (prev[slot] != NONE) {
+                next[prev[slot]] = slot;
+            } else {
+                heads[cells[slot]] = slot;
+            }
+
+            if (next[slot] != NONE) {
+                prev[next[slot]] = slot;
+            }
+
+            slots.put(objects[slot], slot);
+        }
+
+        objects[last] = null;
+    }
+
+    /**
+     * Returns if the object is in the index
+     *
+     * @param object Object to look for
+     * @return True if the object is indexed
+     */
+    public boolean contains(SimObject object) {
+        return slots.containsKey(object);
+    }
+
+    /**
+     * Moves the objects that changed cell since the last update
+     *
+     * @param dt Time passed since last update
+     */
+    public void timeStep(double dt) {
+        update();
+    }
+
+    /**
+     * Moves the objects that changed cell since the last update
+     */
+    public void update() {
+        for (int slot = 0; slot < size; slot++) {
+            int cell = cellOf(objects[slot]);
+
+            if (cell != cells[slot]) {
+                unlink(slot);
+                link(slot, cell);
+            }
+        }
+    }
+
+    /**
+     * Finds the objects inside a box
+     *
+     * @param minLat Southern latitude in degrees
+     * @param minLon Western longitude in degrees, if greater than the eastern one the box crosses the antimeridian
+     * @param maxLat Northern latitude in degrees
+     * @param maxLon Eastern longitude in degrees
+     * @param result List where the objects found are added
+     */
+    public void queryBox(double minLat, double minLon, double maxLat, double maxLon, List<SimObject> result) {
+        minLon = normalizeLon(minLon);
+        maxLon = normalizeLon(maxLon);
+
+        double minLatRad = Math.toRadians(minLat);
+        double maxLatRad = Math.toRadians(maxLat);
+        double minLonRad = Math.toRadians(minLon);
+        double maxLonRad = Math.toRadians(maxLon);
+
+        boolean wraps = minLon > maxLon;
+
+        int firstCol = colOf(minLon);
+        int lastCol = colOf(maxLon);
+        int colCount;
+
+        if (!wraps) {
+            colCount = lastCol - firstCol + 1;
+        } else if (lastCol < firstCol) {
+            colCount = lastCol + cols - firstCol + 1;
+        } else {
+            // Both ends on the same column, the box goes around the whole globe
+            colCount = cols;
+        }
+
+        for (int row = rowOf(minLat); row <= rowOf(maxLat); row++) {
+            for (int c = 0; c < colCount; c++) {
+                int slot = heads[row * cols + (firstCol + c) % cols];
+
+                while (slot != NONE) {
+                    SimObject object = objects[slot];
+                    KinematicStore store = object.getStore();
+
+                    double lat = store.lat[object.row];
+                    double lon = store.lon[object.row];
+
+                    boolean insideLon = wraps ? (lon >= minLonRad || lon <= maxLonRad) : (lon >= minLonRad && lon <= maxLonRad);
+
+                    if (insideLon && lat >= minLatRad && lat <= maxLatRad) {
+                        result.add(object);
+                    }
+
+                    slot = next[slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the objects within a distance of a point
+     *
+     * @param center Center of the search
+     * @param radius Search radius
+     * @param result List where the objects found are added
+     */
+    public void queryRadius(Geo2DPosition center, Distance radius, List<SimObject> result) {
+        queryRadius(center.getLatRadians(), center.getLonRadians(), radius.inMeters(), result);
+    }
+
+    /**
+     * Finds the objects within a distance of a point
+     *
+     * @param center Center of the search
+     * @param meters Search radius in meters
+     * @param result List where the objects found are added
+     */
+    public void queryRadius(Geo2DPosition center, double meters, List<SimObject> result) {
+        queryRadius(center.getLatRadians(), center.getLonRadians(), meters, result);
+    }
+
+    /**
+     * Finds the objects within a distance of a point
+     *
+     * @param lat Latitude of the center in radians
+     * @param lon Longitude of the center in radians
+     * @param meters Search radius in meters
+     * @param result List where the objects found are added
+     */
+    public void queryRadius(double lat, double lon, double meters, List<SimObject> result) {
+        scan(lat, lon, meters, true, result);
+    }
+
+    /**
+     * Finds the objects on the cells that can contain points within a distance of a point.
+     *
+     * This is the broad phase of a proximity search, the objects found can be farther than the given distance and
+     * must be filtered by the caller.
+     *
+     * @param lat Latitude of the center in radians
+     * @param lon Longitude of the center in radians
+     * @param meters Search radius in meters
+     * @param result List where the objects found are added
+     */
+    public void queryCandidates(double lat, double lon, double meters, List<SimObject> result) {
+        scan(lat, lon, meters, false, result);
+    }
+
+    /**
+     * Finds the objects on the cells covering a spherical cap around a point
+     *
+     * @param lat Latitude of the center in radians
+     * @param lon Longitude of the center in radians
+     * @param meters Search radius in meters
+     * @param exact True to add only the objects within the radius, otherwise all the objects in the cells are added
+     * @param result List where the objects found are added
+     */
+    private void scan(double lat, double lon, double meters, boolean exact, List<SimObject> result) {
+        // Angular radius of the search
+        double δ = meters / GeoConsts.EARTH_RADIUS;
+
+        double minLat = lat - δ;
+        double maxLat = lat + δ;
+
+        int firstCol;
+        int colCount;
+
+        if (δ >= Math.PI || maxLat >= Math.PI / 2 || minLat <= -Math.PI / 2) {
+            // The search area contains a pole, all longitudes must be searched
+            firstCol = 0;
+            colCount = cols;
+        } else {
+            // Longitude span of the spherical cap around the center
+            double Δλ = Math.toDegrees(Math.asin(Math.sin(δ) / Math.cos(lat)));
+
+            if (Δλ >= 180) {
+                firstCol = 0;
+                colCount = cols;
+            } else {
+                double lonDeg = Math.toDegrees(lon);
+
+                firstCol = colOf(normalizeLon(lonDeg - Δλ));
+                colCount = Math.min(cols, ((colOf(normalizeLon(lonDeg + Δλ)) - firstCol + cols) % cols) + 1);
+            }
+        }
+
+        int firstRow = rowOf(Math.toDegrees(Math.max(minLat, -Math.PI / 2)));
+        int lastRow = rowOf(Math.toDegrees(Math.min(maxLat, Math.PI / 2)));
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int c = 0; c < colCount; c++) {
+                int slot = heads[row * cols + (firstCol + c) % cols];
+
+                while (slot != NONE) {
+                    SimObject object = objects[slot];
+
+                    if (!exact) {
+                        result.add(object);
+                    } else {
+                        KinematicStore store = object.getStore();
+
+                        double distance = GeoTools.getDistanceMeters(lat, lon, store.lat[object.row], store.lon[object.row]);
+
+                        if (distance <= meters) {
+                            result.add(object);
+                        }
+                    }
+
+                    slot = next[slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest objects to a point.
+     *
+     * The search radius starts at the size of a cell and is doubled until enough objects are found
+     *
+     * @param center Center of the search
+     * @param k Number of objects to find
+     * @param result List where the objects found are added, nearest first
+     */
+    public void queryNearest(Geo2DPosition center, int k, List<SimObject> result) {
+        if (k <= 0 || size == 0) {
+            return;
+        }
+
+        double lat = center.getLatRadians();
+        double lon = center.getLonRadians();
+
+        double maxRadius = Math.PI * GeoConsts.EARTH_RADIUS;
+        double radius = Math.toRadians(cellSize) * GeoConsts.EARTH_RADIUS;
+
+        List<SimObject> candidates = new ArrayList<>();
+
+        while (true) {
+            candidates.clear();
+            queryRadius(lat, lon, radius, candidates);
+
+            // Objects within the radius are all the objects closer than it, so if there are enough they are the nearest
+            if (candidates.size() >= k || radius >= maxRadius) {
+                break;
+            }
+
+            radius = Math.min(radius * 2, maxRadius);
+        }
+
+        int count = candidates.size();
+        double[] distances = new double[count];
+        Integer[] order = new Integer[count];
+
+        for (int i = 0; i < count; i++) {
+            SimObject object = candidates.get(i);
+            KinematicStore store = object.getStore();
+
+            distances[i] = GeoTools.getDistanceMeters(lat, lon, store.lat[object.row], store.lon[object.row]);
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+
+        for (int i = 0; i < Math.min(k, count); i++) {
+            result.add(candidates.get(order[i]));
+        }
+    }
+
+    /**
+     * Adds a slot at the head of the list of a cell
+     *
+     * @param slot Slot to link
+     * @param cell Cell number
+     */
+    private void link(int slot, int cell) {
+        int head = heads[cell];
+
+        cells[slot] = cell;
+        prev[slot] = NONE;
+        next[slot] = head;
+
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+
+        heads[cell] = slot;
+    }
+
+    /**
+     * Removes a slot from the list of its cell
+     *
+     * @param slot Slot to unlink
+     */
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            heads[cells[slot]] = next[slot];
+        }
+
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    /**
+     * Returns the cell containing an object
+     *
+     * @param object Sim object
+     * @return Cell number
+     */
+    private int cellOf(SimObject object) {
+        KinematicStore store = object.getStore();
+
+        double lat = Math.toDegrees(store.lat[object.row]);
+        double lon = Math.toDegrees(store.lon[object.row]);
+
+        return rowOf(lat) * cols + colOf(lon);
+    }
+
+    /**
+     * Returns the row of cells containing a latitude
+     *
+     * @param lat Latitude in degrees
+     * @return Row number
+     */
+    private int rowOf(double lat) {
+        int row = (int) ((lat + 90) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Returns the column of cells containing a longitude
+     *
+     * @param lon Longitude in degrees from -180 to 180
+     * @return Column number
+     */
+    private int colOf(double lon) {
+        int col = (int) ((lon + 180) / cellSize);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    /**
+     * Normalizes a longitude to the range -180 to 180
+     *
+     * @param lon Longitude in degrees
+     * @return Normalized longitude in degrees
+     */
+    private static double normalizeLon(double lon) {
+        if (lon >= -180 && lon <= 180) {
+            return lon;
+        }
+
+        lon = (lon + 180) % 360;
+
+        return (lon < 0 ? lon + 360 : lon) - 180;
+    }
+}
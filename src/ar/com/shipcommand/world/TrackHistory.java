@@ -0,0 +1,331 @@
+package ar.com.shipcommand.world;
+
+import ar.com.shipcommand.main.GameLoop;
+import ar.com.shipcommand.main.ITimedSystem;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Keeps the recent positions of sim objects outside the Java heap.
+ *
+ * Each tracked object has a ring buffer with room for a fixed number of samples, when it's full the oldest sample
+ * is overwritten. Samples are taken at a fixed interval of simulated time and stored quantized in 16 bytes:
+ * latitude and longitude as fractions of π on 32 bit integers (about 1 cm), altitude in centimeters and time in
+ * hundredths of a second. The ring buffers live in direct byte buffers allocated in chunks, so hours of history of
+ * many objects don't add to the heap scanned by the garbage collector. The maximum direct memory of the JVM may
+ * need to be raised with -XX:MaxDirectMemorySize for long histories.
+ *
+ * The history must be added to the game loop as a system so samples are taken after all objects moved. Objects must
+ * be added and removed from the physics thread, and the samples read from it.
+ */
+public class TrackHistory implements ITimedSystem {
+    /**
+     * Size in bytes of a sample
+     */
+    private static int SAMPLE_SIZE = 16;
+    /**
+     * Maximum number of tracks on each direct buffer
+     */
+    private static int MAX_TRACKS_PER_CHUNK = 1024;
+    /**
+     * Scale used to quantize angles in radians
+     */
+    private static double ANGLE_SCALE = Integer.MAX_VALUE / Math.PI;
+
+    private int capacity;
+    private double interval;
+    private int tracksPerChunk;
+
+    private List<ByteBuffer> chunks = new ArrayList<>();
+
+    private IdentityHashMap<SimObject, Integer> slots = new IdentityHashMap<>();
+    private SimObject[] objects = new SimObject[64];
+    private int[] heads = new int[64];
+    private int[] counts = new int[64];
+
+    private int[] free = new int[64];
+    private int freeCount = 0;
+    private int slotCount = 0;
+
+    private double time = 0;
+    private double nextSample;
+
+    /**
+     * Sample read from a track
+     */
+    public static class Sample {
+        private double lat;
+        private double lon;
+        private double altitude;
+        private double time;
+
+        /**
+         * Returns the latitude of the sample
+         *
+         * @return Latitude in degrees
+         */
+        public double getLat() {
+            return lat;
+        }
+
+        /**
+         * Returns the longitude of the sample
+         *
+         * @return Longitude in degrees
+         */
+        public double getLon() {
+            return lon;
+        }
+
+        /**
+         * Returns the altitude of the sample
+         *
+         * @return Altitude in meters
+         */
+        public double getAltitude() {
+            return altitude;
+        }
+
+        /**
+         * Returns the simulated time of the sample
+         *
+         * @return Time in seconds since the history was created
+         */
+        public double getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * Creates a new track history
+     *
+     * @param capacity Number of samples kept for each object
+     * @param interval Seconds of simulated time between samples, zero to sample on every tick
+     */
+    public TrackHistory(int capacity, double interval) {
+        this.capacity = Math.max(1, capacity);
+        this.interval = Math.max(0, interval);
+        this.nextSample = this.interval;
+
+        // Chunks must be addressable with int offsets
+        this.tracksPerChunk = (int) Math.max(1, Math.min(MAX_TRACKS_PER_CHUNK, Integer.MAX_VALUE / ((long) this.capacity * SAMPLE_SIZE)));
+    }
+
+    /**
+     * Returns the number of samples kept for each object
+     *
+     * @return Samples per track
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the time between samples
+     *
+     * @return Seconds between samples
+     */
+    public double getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the off-heap memory allocated for the tracks
+     *
+     * @return Size in bytes
+     */
+    public long getMemoryUsage() {
+        return (long) chunks.size() * tracksPerChunk * capacity * SAMPLE_SIZE;
+    }
+
+    /**
+     * Starts tracking an object, its current position is taken as the first sample
+     *
+     * @param object Object to track
+     */
+    public void add(SimObject object) {
+        if (slots.containsKey(object)) {
+            return;
+        }
+
+        int slot;
+
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            slot = slotCount++;
+
+            if (slot == objects.length) {
+                objects = Arrays.copyOf(objects, slot * 2);
+                heads = Arrays.copyOf(heads, slot * 2);
+                counts = Arrays.copyOf(counts, slot * 2);
+            }
+
+            if (slot / tracksPerChunk == chunks.size()) {
+                chunks.add(ByteBuffer.allocateDirect(tracksPerChunk * capacity * SAMPLE_SIZE));
+            }
+        }
+
+        slots.put(object, slot);
+        objects[slot] = object;
+        heads[slot] = 0;
+        counts[slot] = 0;
+
+        sample(slot);
+    }
+
+    /**
+     * Stops tracking an object, its samples are discarded
+     *
+     * @param object Object to stop tracking
+     */
+    public void remove(SimObject object) {
+        Integer slot = slots.remove(object);
+
+        if (slot == null) {
+            return;
+        }
+
+        objects[slot] = null;
+
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+
+        free[freeCount++] = slot;
+    }
+
+    /**
+     * Returns if an object is being tracked
+     *
+     * @param object Object to look for
+     * @return True if the object is tracked
+     */
+    public boolean contains(SimObject object) {
+        return slots.containsKey(object);
+    }
+
+    /**
+     * Returns the number of samples kept for an object
+     *
+     * @param object Tracked object
+     * @return Number of samples, zero if the object is not tracked
+     */
+    public int getSampleCount(SimObject object) {
+        Integer slot = slots.get(object);
+
+        return slot != null ? counts[slot] : 0;
+    }
+
+    /**
+     * Reads a sample of an object's track
+     *
+     * @param object Tracked object
+     * @param index Sample number, zero is the oldest sample kept
+     * @param sample Sample where the values are stored
+     */
+    public void getSample(SimObject object, int index, Sample sample) {
+        Integer slot = slots.get(object);
+
+        if (slot == null || index < 0 || index >= counts[slot]) {
+            throw new IndexOutOfBoundsException("Sample " + index + " is not on the track");
+        }
+
+        // The oldest sample is at the head once the ring buffer is full
+        int position = (heads[slot] - counts[slot] + index + capacity) % capacity;
+
+        ByteBuffer chunk = chunks.get(slot / tracksPerChunk);
+        int offset = offset(slot, position);
+
+        sample.lat = Math.toDegrees(chunk.getInt(offset) / ANGLE_SCALE);
+        sample.lon = Math.toDegrees(chunk.getInt(offset + 4) / ANGLE_SCALE);
+        sample.altitude = chunk.getInt(offset + 8) / 100.0;
+        sample.time = chunk.getInt(offset + 12) / 100.0;
+    }
+
+    /**
+     * Sets the history's clock, called by the game loop before the history is stepped
+     *
+     * @param time Simulated time at the start of the step in seconds
+     */
+    public void setTime(double time) {
+        this.time = time;
+    }
+
+    /**
+     * Returns the time of the next sample
+     *
+     * @return Simulated time in seconds, half a physics step before the sampling time so it's taken on the closest
+     *         step, infinite if no object is tracked
+     */
+    public double getNextTime() {
+        if (slots.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return nextSample - GameLoop.getFrameTime() / 2;
+    }
+
+    /**
+     * Takes a sample of all tracked objects when the sampling interval has passed
+     *
+     * @param dt Time passed since last update
+     */
+    public void timeStep(double dt) {
+        time += dt;
+
+        // Sample on the tick closest to the sampling time
+        if (time < nextSample - dt / 2) {
+            return;
+        }
+
+        // Keep the sampling times on the interval grid
+        nextSample = interval > 0 ? (Math.floor((time + dt / 2) / interval) + 1) * interval : time;
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (objects[slot] != null) {
+                sample(slot);
+            }
+        }
+    }
+
+    /**
+     * Writes the current position of an object on its track
+     *
+     * @param slot Track number
+     */
+    private void sample(int slot) {
+        SimObject object = objects[slot];
+        KinematicStore store = object.getStore();
+        int row = object.row;
+
+        ByteBuffer chunk = chunks.get(slot / tracksPerChunk);
+        int offset = offset(slot, heads[slot]);
+
+        chunk.putInt(offset, (int) Math.round(store.lat[row] * ANGLE_SCALE));
+        chunk.putInt(offset + 4, (int) Math.round(store.lon[row] * ANGLE_SCALE));
+        chunk.putInt(offset + 8, (int) Math.round(store.altitude[row] * 100));
+        chunk.putInt(offset + 12, (int) Math.round(time * 100));
+
+        heads[slot] = (heads[slot] + 1) % capacity;
+
+        if (counts[slot] < capacity) {
+            counts[slot]++;
+        }
+    }
+
+    /**
+     * Returns the offset of a sample on its chunk
+     *
+     * @param slot Track number
+     * @param position Position of the sample on the ring buffer
+     * @return Offset in bytes
+     */
+    private int offset(int slot, int position) {
+        return ((slot % tracksPerChunk) * capacity + position) * SAMPLE_SIZE;
+    }
+}
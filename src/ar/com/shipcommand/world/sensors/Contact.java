@@ -0,0 +1,109 @@
+package ar.com.shipcommand.world.sensors;
+
+import ar.com.shipcommand.world.Platform;
+
+/**
+ * Target detected by the sensors of a platform.
+ *
+ * The contact keeps the range and bearing measured on the last detection. It's updated by the detection engine
+ * while any sensor of the observer detects the target.
+ */
+public class Contact {
+    private Platform target;
+    private Sensor sensor;
+
+    private double range;
+    private double bearing;
+
+    private double firstDetection;
+    private double lastDetection;
+
+    /**
+     * Sensors holding the contact, one bit per sensor index
+     */
+    long holders;
+    /**
+     * Scan number of the last detection
+     */
+    long scan;
+
+    /**
+     * Creates a new contact
+     *
+     * @param target Detected platform
+     * @param time Time of the detection in seconds
+     */
+    Contact(Platform target, double time) {
+        this.target = target;
+        this.firstDetection = time;
+    }
+
+    /**
+     * Stores the values measured on a detection
+     *
+     * @param sensor Sensor that detected the target
+     * @param range Range in meters
+     * @param bearing Bearing in degrees
+     * @param time Time of the detection in seconds
+     */
+    void detected(Sensor sensor, double range, double bearing, double time) {
+        this.sensor = sensor;
+        this.range = range;
+        this.bearing = bearing;
+        this.lastDetection = time;
+    }
+
+    /**
+     * Returns the detected platform
+     *
+     * @return Target platform
+     */
+    public Platform getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the sensor of the last detection
+     *
+     * @return Sensor
+     */
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * Returns the range to the target on the last detection
+     *
+     * @return Range in meters
+     */
+    public double getRange() {
+        return range;
+    }
+
+    /**
+     * Returns the bearing to the target on the last detection
+     *
+     * @return Bearing in degrees from north, -180 to 180
+     */
+    public double getBearing() {
+        return bearing;
+    }
+
+    /**
+     * Returns the simulated time when the target was first detected
+     *
+     * @return Time in seconds
+     */
+    public double getFirstDetection() {
+        return firstDetection;
+    }
+
+    /**
+     * Returns the simulated time of the last detection
+     *
+     * @return Time in seconds
+     */
+    public double getLastDetection() {
+        return lastDetection;
+    }
+}
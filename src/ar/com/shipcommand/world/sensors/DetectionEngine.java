@@ -0,0 +1,433 @@
+package ar.com.shipcommand.world.sensors;
+
+import ar.com.shipcommand.main.ITimedSystem;
+import ar.com.shipcommand.physics.geo.LocalFrame;
+import ar.com.shipcommand.world.IShardSystem;
+import ar.com.shipcommand.world.KinematicStore;
+import ar.com.shipcommand.world.Platform;
+import ar.com.shipcommand.world.Shard;
+import ar.com.shipcommand.world.ShardedWorld;
+import ar.com.shipcommand.world.SimObject;
+import ar.com.shipcommand.world.SpatialIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Finds the platforms detected by the sensors of other platforms.
+ *
+ * Each sensor scans at its own rate. A scan takes the platforms on the spatial index cells around the observer
+ * (broad phase) and measures range and bearing only to those (narrow phase), so the cost grows with the number of
+ * platforms near each observer instead of with the number of pairs. Changes on the contacts are sent to the
+ * listeners as add, update and drop events.
+ *
+ * The engine must be added to the game loop as a system so the scans see the positions after all platforms moved.
+ * Platforms must be added and removed from the physics thread.
+ *
+ * An engine created for a sharded world must be added to the world as a shard system instead. Each shard scans with
+ * the sensors of the platforms it owns, finding the targets on its own index and on its ghosts, so platforms close
+ * to a border detect the ones across it. Positions are read from the kinematic store rows, which are not written
+ * during the interact phase, and the contacts of an observer are only changed by the shard owning it. The events
+ * are raised on the shard worker threads, so listeners must be thread safe. Platforms must also be added to the
+ * world.
+ */
+public class DetectionEngine implements ITimedSystem, IShardSystem {
+    /**
+     * Maximum number of sensors on a platform
+     */
+    private static int MAX_SENSORS = 64;
+
+    private SpatialIndex index;
+    private boolean ownsIndex;
+
+    private IdentityHashMap<Platform, Observer> observers = new IdentityHashMap<>();
+    private List<Observer> observerList = new ArrayList<>();
+    private List<IContactListener> listeners = new ArrayList<>();
+
+    private ShardedWorld world;
+
+    private Scratch scratch = new Scratch();
+    private Scratch[] shardScratch;
+
+    private double time = 0;
+
+    /**
+     * Platform on the engine and the contacts it holds
+     */
+    private static class Observer {
+        Platform platform;
+        double[] nextScan;
+        long scans = 0;
+        IdentityHashMap<Platform, Contact> contacts = new IdentityHashMap<>();
+
+        Observer(Platform platform, int sensors) {
+            this.platform = platform;
+            this.nextScan = new double[sensors];
+        }
+    }
+
+    /**
+     * Objects reused by the scans, one for each thread scanning
+     */
+    private static class Scratch {
+        List<SimObject> candidates = new ArrayList<>();
+        LocalFrame frame = new LocalFrame(0, 0);
+    }
+
+    /**
+     * Creates a new detection engine with an index of its own, updated when the engine is stepped
+     */
+    public DetectionEngine() {
+        this.index = new SpatialIndex();
+        this.ownsIndex = true;
+    }
+
+    /**
+     * Creates a new detection engine using a shared index. The index must be added to the game loop as a system
+     * before the engine and contain all the platforms added to the engine.
+     *
+     * @param index Spatial index used on the broad phase
+     */
+    public DetectionEngine(SpatialIndex index) {
+        this.index = index;
+        this.ownsIndex = false;
+    }
+
+    /**
+     * Creates a new detection engine for the platforms of a sharded world. The engine must be added to the world as
+     * a shard system, and its ghost width must cover the range of the sensors.
+     *
+     * @param world World whose shards are scanned
+     */
+    public DetectionEngine(ShardedWorld world) {
+        this.world = world;
+        this.ownsIndex = false;
+
+        shardScratch = new Scratch[world.getShardCount()];
+
+        for (int i = 0; i < shardScratch.length; i++) {
+            shardScratch[i] = new Scratch();
+        }
+    }
+
+    /**
+     * Adds a listener for the contact events
+     *
+     * @param listener Listener to add
+     */
+    public void addListener(IContactListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener for the contact events
+     *
+     * @param listener Listener to remove
+     */
+    public void removeListener(IContactListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a platform to the engine, it can detect and be detected by the other platforms
+     *
+     * @param platform Platform to add
+     */
+    public void add(Platform platform) {
+        if (observers.containsKey(platform)) {
+            return;
+        }
+
+        int sensors = platform.getSensors().size();
+
+        if (sensors > MAX_SENSORS) {
+            throw new IllegalArgumentException("Platform " + platform.getName() + " has more than " + MAX_SENSORS + " sensors");
+        }
+
+        Observer observer = new Observer(platform, sensors);
+
+        observers.put(platform, observer);
+        observerList.add(observer);
+
+        if (ownsIndex) {
+            index.add(platform);
+        }
+    }
+
+    /**
+     * Removes a platform from the engine, the contacts on it held by other platforms are dropped
+     *
+     * @param platform Platform to remove
+     */
+    public void remove(Platform platform) {
+        Observer removed = observers.remove(platform);
+
+        if (removed == null) {
+            return;
+        }
+
+        observerList.remove(removed);
+
+        if (ownsIndex) {
+            index.remove(platform);
+        }
+
+        for (Observer observer : observerList) {
+            Contact contact = observer.contacts.remove(platform);
+
+            if (contact != null) {
+                contact.holders = 0;
+                fireDropped(observer.platform, contact);
+            }
+        }
+    }
+
+    /**
+     * Returns the contacts held by a platform
+     *
+     * @param platform Observer platform
+     * @return Unmodifiable collection of contacts, empty if the platform is not on the engine
+     */
+    public Collection<Contact> getContacts(Platform platform) {
+        Observer observer = observers.get(platform);
+
+        if (observer == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableCollection(observer.contacts.values());
+    }
+
+    /**
+     * Returns the contact held by a platform on a target
+     *
+     * @param platform Observer platform
+     * @param target Target platform
+     * @return Contact or null if the target is not detected
+     */
+    public Contact getContact(Platform platform, Platform target) {
+        Observer observer = observers.get(platform);
+
+        return observer != null ? observer.contacts.get(target) : null;
+    }
+
+    /**
+     * Sets the engine's clock, called by the game loop before the engine is stepped
+     *
+     * @param time Simulated time at the start of the step in seconds
+     */
+    public void setTime(double time) {
+        this.time = time;
+    }
+
+    /**
+     * Returns the time of the next scan
+     *
+     * @return Simulated time in seconds, infinite if there are no sensors
+     */
+    public double getNextTime() {
+        double next = Double.POSITIVE_INFINITY;
+
+        for (int o = 0; o < observerList.size(); o++) {
+            double[] nextScan = observerList.get(o).nextScan;
+
+            for (int i = 0; i < nextScan.length; i++) {
+                next = Math.min(next, nextScan[i]);
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * Runs the scans of the sensors that are due
+     *
+     * @param dt Time passed since last update
+     */
+    public void timeStep(double dt) {
+        if (ownsIndex) {
+            index.update();
+        }
+
+        time += dt;
+
+        for (int o = 0; o < observerList.size(); o++) {
+            scan(observerList.get(o), time, index, null, scratch);
+        }
+    }
+
+    /**
+     * Runs the scans that are due of the platforms owned by a shard
+     *
+     * @param shard Shard being processed
+     * @param dt Time passed since last update
+     */
+    public void step(Shard shard, double dt) {
+        double time = world.getTime();
+        Scratch scratch = shardScratch[shard.getNumber()];
+
+        for (int i = 0; i < shard.size(); i++) {
+            Observer observer = observers.get(shard.get(i));
+
+            if (observer != null) {
+                scan(observer, time, shard.getIndex(), shard.getGhosts(), scratch);
+            }
+        }
+    }
+
+    /**
+     * Runs the scans of an observer's sensors that are due
+     *
+     * @param observer Observer scanning
+     * @param time Current time in seconds
+     * @param index Index where the targets are found
+     * @param ghosts Second index where the targets are found, null if none
+     * @param scratch Objects used by the scan
+     */
+    private void scan(Observer observer, double time, SpatialIndex index, SpatialIndex ghosts, Scratch scratch) {
+        List<Sensor> sensors = observer.platform.getSensors();
+
+        for (int i = 0; i < observer.nextScan.length; i++) {
+            if (time >= observer.nextScan[i]) {
+                Sensor sensor = sensors.get(i);
+
+                observer.nextScan[i] = time + sensor.getInterval();
+                scan(observer, sensor, i, time, index, ghosts, scratch);
+            }
+        }
+    }
+
+    /**
+     * Finds the targets detected by a sensor and updates the observer's contacts
+     *
+     * @param observer Observer scanning
+     * @param sensor Sensor used
+     * @param sensorIndex Index of the sensor on the platform
+     * @param time Current time in seconds
+     * @param index Index where the targets are found
+     * @param ghosts Second index where the targets are found, null if none
+     * @param scratch Objects used by the scan
+     */
+    private void scan(Observer observer, Sensor sensor, int sensorIndex, double time, SpatialIndex index,
+                      SpatialIndex ghosts, Scratch scratch) {
+        long scan = ++observer.scans;
+        long bit = 1L << sensorIndex;
+        double range = sensor.getRange();
+
+        KinematicStore store = observer.platform.getStore();
+        int row = observer.platform.getRow();
+
+        double lat = store.getLat(row);
+        double lon = store.getLon(row);
+
+        LocalFrame frame = scratch.frame;
+        frame.setOrigin(lat, lon);
+
+        // Broad phase
+        List<SimObject> candidates = scratch.candidates;
+        candidates.clear();
+        index.queryCandidates(lat, lon, range, candidates);
+
+        if (ghosts != null) {
+            ghosts.queryCandidates(lat, lon, range, candidates);
+        }
+
+        // Narrow phase
+        for (int c = 0; c < candidates.size(); c++) {
+            SimObject candidate = candidates.get(c);
+
+            if (candidate == observer.platform || !(candidate instanceof Platform) || !observers.containsKey(candidate)) {
+                continue;
+            }
+
+            Platform target = (Platform) candidate;
+            KinematicStore targetStore = target.getStore();
+            int targetRow = target.getRow();
+
+            double targetLat = targetStore.getLat(targetRow);
+            double targetLon = targetStore.getLon(targetRow);
+
+            double distance = frame.getDistanceMeters(targetLat, targetLon);
+
+            if (distance > range) {
+                continue;
+            }
+
+            double bearing = frame.getBearing(targetLat, targetLon);
+
+            Contact contact = observer.contacts.get(target);
+            boolean added = contact == null;
+
+            if (added) {
+                contact = new Contact(target, time);
+                observer.contacts.put(target, contact);
+            }
+
+            contact.holders |= bit;
+            contact.scan = scan;
+            contact.detected(sensor, distance, bearing, time);
+
+            if (added) {
+                fireAdded(observer.platform, contact);
+            } else {
+                fireUpdated(observer.platform, contact);
+            }
+        }
+
+        // Drop the contacts this sensor held but didn't detect now
+        Iterator<Contact> contacts = observer.contacts.values().iterator();
+
+        while (contacts.hasNext()) {
+            Contact contact = contacts.next();
+
+            if ((contact.holders & bit) != 0 && contact.scan != scan) {
+                contact.holders &= ~bit;
+
+                if (contact.holders == 0) {
+                    contacts.remove();
+                    fireDropped(observer.platform, contact);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners of a new contact
+     *
+     * @param observer Platform holding the contact
+     * @param contact New contact
+     */
+    private void fireAdded(Platform observer, Contact contact) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).contactAdded(observer, contact);
+        }
+    }
+
+    /**
+     * Notifies the listeners of an updated contact
+     *
+     * @param observer Platform holding the contact
+     * @param contact Updated contact
+     */
+    private void fireUpdated(Platform observer, Contact contact) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).contactUpdated(observer, contact);
+        }
+    }
+
+    /**
+     * Notifies the listeners of a dropped contact
+     *
+     * @param observer Platform that held the contact
+     * @param contact Dropped contact
+     */
+    private void fireDropped(Platform observer, Contact contact) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).contactDropped(observer, contact);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ar.com.shipcommand.world.sensors;
+
+import ar.com.shipcommand.world.Platform;
+
+/**
+ * Receives the changes on the contacts held by the platforms of a detection engine.
+ *
+ * Events are raised on the physics thread while the engine is stepped, listeners must not add or remove platforms
+ * from the engine while handling them.
+ */
+public interface IContactListener {
+    /**
+     * Called when a platform detects a target it wasn't holding
+     *
+     * @param observer Platform holding the contact
+     * @param contact New contact
+     */
+    void contactAdded(Platform observer, Contact contact);
+
+    /**
+     * Called when a sensor detects again a target already held
+     *
+     * @param observer Platform holding the contact
+     * @param contact Updated contact
+     */
+    void contactUpdated(Platform observer, Contact contact);
+
+    /**
+     * Called when no sensor of the platform detects the target anymore
+     *
+     * @param observer Platform that held the contact
+     * @param contact Dropped contact
+     */
+    void contactDropped(Platform observer, Contact contact);
+}
@@ -0,0 +1,75 @@
+package ar.com.shipcommand.world.sensors;
+
+import ar.com.shipcommand.physics.magnitudes.Distance;
+
+/**
+ * Sensor mounted on a platform.
+ *
+ * Sensors are immutable so the same instance can be shared by all the platforms of a class.
+ */
+public class Sensor {
+    private String name;
+    private double range;
+    private double interval;
+
+    /**
+     * Creates a new sensor scanning on every tick
+     *
+     * @param name Sensor's name
+     * @param range Detection range
+     */
+    public Sensor(String name, Distance range) {
+        this(name, range.inMeters(), 0);
+    }
+
+    /**
+     * Creates a new sensor
+     *
+     * @param name Sensor's name
+     * @param range Detection range
+     * @param interval Seconds between scans, zero to scan on every tick
+     */
+    public Sensor(String name, Distance range, double interval) {
+        this(name, range.inMeters(), interval);
+    }
+
+    /**
+     * Creates a new sensor
+     *
+     * @param name Sensor's name
+     * @param range Detection range in meters
+     * @param interval Seconds between scans, zero to scan on every tick
+     */
+    public Sensor(String name, double range, double interval) {
+        this.name = name;
+        this.range = range;
+        this.interval = Math.max(0, interval);
+    }
+
+    /**
+     * Returns the sensor's name
+     *
+     * @return Name of the sensor
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the detection range
+     *
+     * @return Range in meters
+     */
+    public double getRange() {
+        return range;
+    }
+
+    /**
+     * Returns the time between scans
+     *
+     * @return Seconds between scans, zero if scanning on every tick
+     */
+    public double getInterval() {
+        return interval;
+    }
+}